@@ -0,0 +1,145 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import bench.Game;
+import bench.Workload;
+
+/**
+ * The benchmarks' workloads, in the default package with the game so they
+ * can call it directly. Programs come from the corpus directory, bench/corpus
+ * unless the bench.corpus property says otherwise.
+ */
+public class BenchWorkloads implements Game.Factory {
+
+	/** Node sources for NodeBench, with nothing that needs variables */
+	private static final String EXPRESSION = "add(mul(3, sub(10, 4)), div(add(7, 9), 2))";
+	private static final String CONDITION = "and(gt(fuelLeft, 10), or(lt(oppLR, 3), not(eq(oppFB, 0))))";
+	private static final String SENSOR = "barrelFB(1)";
+
+	/** Seeds the match benchmark cycles through */
+	private static final int MATCH_SEEDS = 64;
+
+	private final File corpus = new File(System.getProperty("bench.corpus", "bench/corpus"));
+
+	@Override
+	public Workload create(String kind, String param) throws Exception {
+		if (kind.equals("parse")) {
+			return parse(read(param));
+		} else if (kind.equals("node")) {
+			return node(param);
+		} else if (kind.equals("updatePending")) {
+			return updatePending(Integer.parseInt(param), false);
+		} else if (kind.equals("updatePendingAndSense")) {
+			return updatePending(Integer.parseInt(param), true);
+		} else if (kind.equals("match")) {
+			return match(param);
+		}
+		throw new IllegalArgumentException("No workload " + kind);
+	}
+
+	private String read(String name) throws IOException {
+		return new String(Files.readAllBytes(new File(corpus, name + ".prog").toPath()), StandardCharsets.UTF_8);
+	}
+
+	/** Parses straight from the lexer, so the ProgramCache never answers */
+	private static Workload parse(final String source) {
+		return new Workload() {
+			@Override
+			public void run(Blackhole bh) {
+				bh.consume(Parser.parseProgram(new Lexer(source)));
+			}
+		};
+	}
+
+	private static Workload node(String kind) {
+		World world = new World(false, 1);
+		world.setDebugSink(DebugLog.DROP);
+		world.addBarrel(3, 5);
+		world.addBarrel(6, 2);
+		world.addBarrel(9, 9);
+		final Robot robot = world.getRobot(1);
+		robot.updatePending();
+		if (kind.equals("condition")) {
+			final RobotEvaluateNode node = Parser.parseCond(new Lexer(CONDITION));
+			return new Workload() {
+				@Override
+				public void run(Blackhole bh) {
+					bh.consume(node.evaluate(robot));
+				}
+			};
+		}
+		final RobotSensorNode node;
+		if (kind.equals("expression")) {
+			node = Parser.parseExpr(new Lexer(EXPRESSION));
+		} else if (kind.equals("sensor")) {
+			node = Parser.parseSen(new Lexer(SENSOR));
+		} else {
+			throw new IllegalArgumentException("No node " + kind);
+		}
+		return new Workload() {
+			@Override
+			public void run(Blackhole bh) {
+				bh.consume(node.evaluate(robot));
+			}
+		};
+	}
+
+	/**
+	 * A robot in a 40x40 world with the given number of barrels, on distinct
+	 * cells spread across it.
+	 */
+	private static Workload updatePending(int barrels, final boolean sense) {
+		int size = 40;
+		World world = new World(false, 1, 2, size);
+		world.setDebugSink(DebugLog.DROP);
+		for (int i = 0, placed = 0; placed < barrels; i++) {
+			// 37 is coprime to size * size, so every cell comes up once
+			int cell = (i * 37 + 1) % (size * size);
+			if (cell != 0 && cell != size * size - 1) {
+				world.addBarrel(cell % size, cell / size);
+				placed++;
+			}
+		}
+		final Robot robot = world.getRobot(1);
+		return new Workload() {
+			@Override
+			public void run(Blackhole bh) {
+				robot.updatePending();
+				if (sense) {
+					bh.consume(robot.getClosestBarrelFB());
+				}
+			}
+		};
+	}
+
+	private Workload match(String name) throws IOException {
+		final int interpreter = interpreter(name);
+		final RobotProgramNode red = Parser.parse(read("seeker"));
+		final RobotProgramNode blue = Parser.parse(read("hunter"));
+		return new Workload() {
+			private int seed;
+
+			@Override
+			public void run(Blackhole bh) {
+				World world = Tournament.play(red, blue, seed, interpreter, Tournament.TICK_LIMIT, true);
+				seed = (seed + 1) % MATCH_SEEDS;
+				bh.consume(world.getResult());
+			}
+		};
+	}
+
+	private static int interpreter(String name) {
+		if (name.equals("vm")) {
+			return World.INTERPRETER_VM;
+		} else if (name.equals("jit")) {
+			return World.INTERPRETER_JIT;
+		} else if (name.equals("spec")) {
+			return World.INTERPRETER_SPECIALISING;
+		}
+		return World.INTERPRETER_TREE;
+	}
+}
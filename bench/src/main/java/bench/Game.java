@@ -0,0 +1,22 @@
+package bench;
+
+/** Finds BenchWorkloads, which can only be named reflectively from here */
+public final class Game {
+
+	/** Makes workloads of a kind, given a benchmark parameter */
+	public interface Factory {
+		Workload create(String kind, String param) throws Exception;
+	}
+
+	private static Factory factory;
+
+	private Game() {
+	}
+
+	public static synchronized Workload workload(String kind, String param) throws Exception {
+		if (factory == null) {
+			factory = (Factory) Class.forName("BenchWorkloads").getDeclaredConstructor().newInstance();
+		}
+		return factory.create(kind, param);
+	}
+}
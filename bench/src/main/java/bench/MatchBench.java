@@ -0,0 +1,45 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Whole headless matches, seeker.prog against hunter.prog from the corpus,
+ * through each interpreter. Each match uses the next of a fixed run of
+ * seeds, so every fork plays the same matches.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class MatchBench {
+
+	@Param({ "tree", "vm", "jit", "spec" })
+	public String interpreter;
+
+	private Workload match;
+
+	@Setup
+	public void setup() throws Exception {
+		match = Game.workload("match", interpreter);
+	}
+
+	@Benchmark
+	public void match(Blackhole bh) {
+		match.run(bh);
+	}
+}
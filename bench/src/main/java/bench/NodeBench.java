@@ -0,0 +1,45 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Evaluating one tree node against a robot that is not running: an
+ * arithmetic expressionNode, a conditionNode over sensors, and a barrel
+ * sensorNode. See BenchWorkloads for the sources.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class NodeBench {
+
+	@Param({ "expression", "condition", "sensor" })
+	public String node;
+
+	private Workload evaluate;
+
+	@Setup
+	public void setup() throws Exception {
+		evaluate = Game.workload("node", node);
+	}
+
+	@Benchmark
+	public void evaluate(Blackhole bh) {
+		evaluate.run(bh);
+	}
+}
@@ -0,0 +1,41 @@
+package bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Runs the benchmarks with the allocation profiler (-prof gc) on, taking any
+ * other JMH options from the command line. Run from the project root, where
+ * the corpus and the robots' images are:
+ *
+ * java -jar bench/target/benchmarks.jar [jmh options] [benchmark regex]
+ */
+public class Run {
+
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+			Main.main(args);
+			return;
+		}
+		OptionsBuilder options = new OptionsBuilder();
+		options.parent(cmd);
+		if (!profilesGc(cmd)) {
+			options.addProfiler(GCProfiler.class);
+		}
+		new Runner(options.build()).run();
+	}
+
+	private static boolean profilesGc(CommandLineOptions cmd) {
+		for (ProfilerConfig p : cmd.getProfilers()) {
+			if (p.getKlass().equals("gc") || p.getKlass().equals(GCProfiler.class.getName())) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
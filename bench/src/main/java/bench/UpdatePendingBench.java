@@ -0,0 +1,50 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Robot.updatePending in a 40x40 world holding some barrels, alone and
+ * followed by the nearest barrel sensor, which is when barrels are looked up.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class UpdatePendingBench {
+
+	@Param({ "0", "10", "1000" })
+	public String barrels;
+
+	private Workload update, updateAndSense;
+
+	@Setup
+	public void setup() throws Exception {
+		update = Game.workload("updatePending", barrels);
+		updateAndSense = Game.workload("updatePendingAndSense", barrels);
+	}
+
+	@Benchmark
+	public void updatePending(Blackhole bh) {
+		update.run(bh);
+	}
+
+	@Benchmark
+	public void updatePendingAndSense(Blackhole bh) {
+		updateAndSense.run(bh);
+	}
+}
@@ -0,0 +1,12 @@
+package bench;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * One measured operation. Workloads are made by BenchWorkloads, which lives
+ * in the game's default package so it can reach package-private code that
+ * these benchmarks, in a package of their own as JMH requires, cannot.
+ */
+public interface Workload {
+	void run(Blackhole bh);
+}
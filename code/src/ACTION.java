@@ -0,0 +1,3 @@
+enum ACTION {
+	turnL, turnR, wait, takeFuel, move, turnAround, shieldOn, shieldOff
+}
@@ -0,0 +1,193 @@
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The fuel barrels of a world, bucketed by area so that the barrels nearest a
+ * robot can be found without looking at the rest. Kept up to date as barrels
+ * are added and taken rather than rebuilt every tick.
+ *
+ * Barrels are stored as cells packed into longs (see pack), in the copy on
+ * write tables of BarrelOrder and of the buckets, a short list per bucket.
+ * Memory grows with the number of barrels, not cells, apart from one
+ * reference per bucket. Copies share every list until they change it, so a
+ * rollout from a snapshot copies the lists it touches and not the rest.
+ *
+ * Barrels at the same distance come in the order the game has always given
+ * them, see BarrelOrder.
+ */
+class BarrelIndex {
+
+	/** Buckets are BUCKET x BUCKET cells */
+	static final int BUCKET = 8;
+
+	private final int side;
+	private final CellTable buckets;
+	/** Every barrel, in the game's order */
+	private final BarrelOrder order;
+
+	BarrelIndex(int size) {
+		this((size + BUCKET - 1) / BUCKET, null, new BarrelOrder());
+	}
+
+	private BarrelIndex(int side, CellTable buckets, BarrelOrder order) {
+		this.side = side;
+		this.buckets = (buckets != null) ? buckets : new CellTable(side * side, new CellTable.Row());
+		this.order = order;
+	}
+
+	/** A copy that can be changed without affecting this one, see CellTable.copy */
+	synchronized BarrelIndex copy() {
+		return new BarrelIndex(side, buckets.copy(), order.copy());
+	}
+
+	/** Makes copy cost nothing until this changes again, see CellTable.flatten */
+	synchronized void flatten() {
+		buckets.flatten();
+		order.flatten();
+	}
+
+	static long pack(int x, int y) {
+		return ((long) x << 32) | (y & 0xffffffffL);
+	}
+
+	static int x(long cell) {
+		return (int) (cell >>> 32);
+	}
+
+	static int y(long cell) {
+		return (int) cell;
+	}
+
+	int size() {
+		return order.size();
+	}
+
+	/**
+	 * Reads, unlike changes, are not locked; the world only reads while
+	 * nothing can change the barrels.
+	 */
+	boolean contains(int x, int y) {
+		return order.contains(pack(x, y));
+	}
+
+	/**
+	 * Adding a barrel where there is one already changes nothing here, but
+	 * can change the order of ties, see BarrelOrder.add.
+	 *
+	 * @return whether there was no barrel there already
+	 */
+	synchronized boolean add(int x, int y) {
+		long cell = pack(x, y);
+		if (!order.add(cell)) {
+			return false;
+		}
+		CellTable.Row bucket = buckets.writable(bucket(x / BUCKET, y / BUCKET));
+		bucket.insert(bucket.size, cell);
+		return true;
+	}
+
+	/**
+	 * Takes the barrel on a cell if there is one. Checking and taking happen
+	 * together, so two robots can never both get the same barrel.
+	 *
+	 * @return whether there was a barrel there
+	 */
+	synchronized boolean claim(int x, int y) {
+		long cell = pack(x, y);
+		if (!order.remove(cell)) {
+			return false;
+		}
+		CellTable.Row bucket = buckets.writable(bucket(x / BUCKET, y / BUCKET));
+		bucket.remove(bucket.indexOf(cell));
+		return true;
+	}
+
+	synchronized void clear() {
+		for (int b = 0; b < buckets.length(); b++) {
+			if (buckets.size(b) > 0) {
+				buckets.writable(b).size = 0;
+			}
+		}
+		order.clear();
+	}
+
+	/** A copy of every barrel's packed cell, for drawing */
+	synchronized long[] snapshot() {
+		return order.cells();
+	}
+
+	/**
+	 * Finds the k barrels nearest (x, y) by grid distance, nearest first.
+	 * Buckets are searched in square rings around the one holding (x, y); a
+	 * barrel outside ring r is more than r * BUCKET away, so the search stops
+	 * once k barrels at most that far have been found. If the rings would
+	 * cover more buckets than there are barrels, every barrel is ranked
+	 * instead.
+	 */
+	List<Point> nearest(int x, int y, int k) {
+		int count = order.size();
+		k = Math.min(k, count);
+		long[] found = new long[Math.max(k, 16)];
+		int n = 0;
+		if (k > 0) {
+			int bx = x / BUCKET, by = y / BUCKET;
+			int scanned = 0;
+			for (int r = 0; r < side; r++) {
+				scanned += (r == 0) ? 1 : 8 * r;
+				if (scanned > count) {
+					found = order.cells();
+					n = count;
+					break;
+				}
+				for (int j = by - r; j <= by + r; j++) {
+					// only the edge of the ring, the inside was done already
+					int step = (j == by - r || j == by + r) ? 1 : 2 * r;
+					for (int i = bx - r; i <= bx + r; i += Math.max(1, step)) {
+						if (i >= 0 && j >= 0 && i < side && j < side && buckets.size(bucket(i, j)) > 0) {
+							CellTable.Row bucket = buckets.row(bucket(i, j));
+							if (n + bucket.size > found.length) {
+								found = Arrays.copyOf(found, Math.max(found.length * 2, n + bucket.size));
+							}
+							System.arraycopy(bucket.cells, 0, found, n, bucket.size);
+							n += bucket.size;
+						}
+					}
+				}
+				int within = 0;
+				for (int f = 0; f < n; f++) {
+					if (distance(found[f], x, y) <= r * BUCKET) {
+						within++;
+					}
+				}
+				if (within >= k) {
+					break;
+				}
+			}
+		}
+
+		// rank by distance then BarrelOrder, packed into one long per barrel
+		long[] ranks = new long[n];
+		for (int f = 0; f < n; f++) {
+			ranks[f] = ((long) distance(found[f], x, y) << 44) | order.rank(found[f]);
+		}
+		long[] sorted = ranks.clone();
+		Arrays.sort(sorted);
+		Point[] nearest = new Point[k];
+		for (int f = 0; f < n; f++) {
+			int rank = Arrays.binarySearch(sorted, ranks[f]);
+			if (rank < k) {
+				nearest[rank] = new Point(x(found[f]), y(found[f]));
+			}
+		}
+		return Arrays.asList(nearest);
+	}
+
+	private int bucket(int i, int j) {
+		return j * side + i;
+	}
+
+	private static int distance(long cell, int x, int y) {
+		return Math.abs(x(cell) - x) + Math.abs(y(cell) - y);
+	}
+}
@@ -0,0 +1,629 @@
+import java.util.Arrays;
+
+/**
+ * Where each barrel comes in the iteration order of the set the game first
+ * kept its barrels in, a ConcurrentHashMap backed set of java.awt.Point.
+ * Robots sorted that set by distance, stably, so barrels at the same distance
+ * came out in this order, and BarrelIndex ranks ties by it so that programs
+ * still see the barrels they always saw.
+ *
+ * The map is followed operation by operation, as it runs on one thread: its
+ * table of bins and when that grows, the order of each bin, which bins are
+ * red-black trees, and the shape of those trees, since that decides when a
+ * tree turns back into a list. The map broke ties between points with equal
+ * hash codes in a tree by identity hash code, which no copy can follow; here
+ * the newer point goes left.
+ */
+class BarrelOrder {
+
+	/** As in ConcurrentHashMap */
+	private static final int TREEIFY_THRESHOLD = 8, UNTREEIFY_THRESHOLD = 6, MIN_TREEIFY_CAPACITY = 64;
+
+	/** A bin's cells in iteration order, and its tree if it is one */
+	private static class Bin extends CellTable.Row {
+		Tree tree;
+
+		@Override
+		Bin copy() {
+			Bin bin = (Bin) copyTo(new Bin());
+			if (tree != null) {
+				bin.tree = tree.copy();
+			}
+			return bin;
+		}
+	}
+
+	/** The map's table, null before the first add */
+	private CellTable bins;
+	/** The map's sizeCtl, the count at which the table grows */
+	private int resizeAt = 0;
+	private int count = 0;
+
+	/** A copy that can be changed without affecting this one, see CellTable.copy */
+	BarrelOrder copy() {
+		BarrelOrder copy = new BarrelOrder();
+		copy.bins = (bins == null) ? null : bins.copy();
+		copy.resizeAt = resizeAt;
+		copy.count = count;
+		return copy;
+	}
+
+	/** See CellTable.flatten */
+	void flatten() {
+		if (bins != null) {
+			bins.flatten();
+		}
+	}
+
+	int size() {
+		return count;
+	}
+
+	boolean contains(long cell) {
+		return bins != null && indexOf(bin(cell), cell) >= 0;
+	}
+
+	/**
+	 * The position of a cell in iteration order, as its bin then its place
+	 * in the bin, packed so that earlier positions are smaller. The cell
+	 * must be in the set.
+	 */
+	long rank(long cell) {
+		int b = bin(cell);
+		return ((long) b << 14) | indexOf(b, cell);
+	}
+
+	/** Every cell, in iteration order */
+	long[] cells() {
+		long[] cells = new long[count];
+		int n = 0;
+		for (int b = 0; bins != null && b < bins.length(); b++) {
+			CellTable.Row bin = bins.row(b);
+			if (bin != null) {
+				System.arraycopy(bin.cells, 0, cells, n, bin.size);
+				n += bin.size;
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * Follows Set.add. The game added barrels to cells that had one already,
+	 * which leaves the set as it was but can still grow the table or turn a
+	 * bin into a tree.
+	 *
+	 * @return whether the cell was not in the set
+	 */
+	boolean add(long cell) {
+		if (bins == null) {
+			bins = new CellTable(16, new Bin());
+			resizeAt = 12;
+		}
+		int h = hash(cell);
+		int b = h & (bins.length() - 1);
+		int i = indexOf(b, cell);
+		Bin bin = (Bin) bins.row(b);
+		int binCount;
+		if (bin != null && bin.tree != null) {
+			if (i >= 0) {
+				return false;
+			}
+			// trees put new nodes first
+			bin = (Bin) bins.writable(b);
+			bin.insert(0, cell);
+			bin.tree.add(h, cell);
+			binCount = 2;
+		} else {
+			if (i >= 0) {
+				// found after looking at i + 1 nodes
+				if (i + 1 >= TREEIFY_THRESHOLD) {
+					treeify(b);
+				}
+				return false;
+			}
+			bin = (Bin) bins.writable(b);
+			binCount = bin.size;
+			bin.insert(binCount, cell);
+			if (binCount >= TREEIFY_THRESHOLD) {
+				treeify(b);
+			}
+		}
+		count++;
+		while (count >= resizeAt) {
+			transfer();
+		}
+		return true;
+	}
+
+	/**
+	 * Follows Set.remove.
+	 *
+	 * @return whether the cell was in the set
+	 */
+	boolean remove(long cell) {
+		if (bins == null) {
+			return false;
+		}
+		int h = hash(cell);
+		int b = h & (bins.length() - 1);
+		int i = indexOf(b, cell);
+		if (i < 0) {
+			return false;
+		}
+		Bin bin = (Bin) bins.writable(b);
+		bin.remove(i);
+		if (bin.tree != null && (bin.size == 0 || bin.tree.remove(h, cell))) {
+			bin.tree = null;
+		}
+		count--;
+		return true;
+	}
+
+	/** Follows Set.clear, which keeps the table as large as it was */
+	void clear() {
+		if (bins != null) {
+			bins = new CellTable(bins.length(), new Bin());
+		}
+		count = 0;
+	}
+
+	/** The spread hash code the map used for the Point at a cell */
+	static int hash(long cell) {
+		long bits = Double.doubleToLongBits(BarrelIndex.x(cell));
+		bits ^= Double.doubleToLongBits(BarrelIndex.y(cell)) * 31;
+		int h = ((int) bits) ^ ((int) (bits >> 32));
+		return (h ^ (h >>> 16)) & 0x7fffffff;
+	}
+
+	private int bin(long cell) {
+		return hash(cell) & (bins.length() - 1);
+	}
+
+	private int indexOf(int b, long cell) {
+		CellTable.Row bin = bins.row(b);
+		return (bin == null) ? -1 : bin.indexOf(cell);
+	}
+
+	/** A long list bin becomes a tree, unless the table is small, which grows instead */
+	private void treeify(int b) {
+		int n = bins.length();
+		if (n < MIN_TREEIFY_CAPACITY) {
+			int size = n << 1;
+			int c = tableSizeFor(size + (size >>> 1) + 1);
+			while (c > resizeAt) {
+				transfer();
+			}
+		} else if (((Bin) bins.row(b)).tree == null) {
+			Bin bin = (Bin) bins.writable(b);
+			bin.tree = new Tree(bin.cells, bin.size);
+		}
+	}
+
+	private static int tableSizeFor(int c) {
+		return Integer.highestOneBit(c - 1) << 1;
+	}
+
+	/** Doubles the table, splitting each bin in two as the map does */
+	private void transfer() {
+		int n = bins.length();
+		CellTable old = bins;
+		bins = new CellTable(n << 1, new Bin());
+		for (int b = 0; b < n; b++) {
+			Bin from = (Bin) old.row(b);
+			if (from == null || from.size == 0) {
+				continue;
+			}
+			long[] bin = from.cells;
+			int size = from.size;
+			Bin lo = (Bin) bins.writable(b), hi = (Bin) bins.writable(b + n);
+			if (from.tree == null) {
+				// the longest tail going to one side keeps its order, the
+				// nodes before it are pushed on the front of their side
+				int runBit = hash(bin[0]) & n, lastRun = 0;
+				for (int i = 1; i < size; i++) {
+					int bit = hash(bin[i]) & n;
+					if (bit != runBit) {
+						runBit = bit;
+						lastRun = i;
+					}
+				}
+				for (int i = lastRun - 1; i >= 0; i--) {
+					Bin side = ((hash(bin[i]) & n) == 0) ? lo : hi;
+					side.insert(side.size, bin[i]);
+				}
+				Bin side = (runBit == 0) ? lo : hi;
+				for (int i = lastRun; i < size; i++) {
+					side.insert(side.size, bin[i]);
+				}
+			} else {
+				for (int i = 0; i < size; i++) {
+					Bin side = ((hash(bin[i]) & n) == 0) ? lo : hi;
+					side.insert(side.size, bin[i]);
+				}
+				// a tree that all goes one way is kept as it is
+				if (lo.size > UNTREEIFY_THRESHOLD) {
+					lo.tree = (hi.size != 0) ? new Tree(lo.cells, lo.size) : from.tree.copy();
+				}
+				if (hi.size > UNTREEIFY_THRESHOLD) {
+					hi.tree = (lo.size != 0) ? new Tree(hi.cells, hi.size) : from.tree.copy();
+				}
+			}
+		}
+		resizeAt = (n << 1) - (n >>> 1);
+	}
+
+	/** The shape of a tree bin, see TreeBin in ConcurrentHashMap */
+	private static class Tree {
+
+		private static class Node {
+			final int hash;
+			final long cell;
+			Node parent, left, right;
+			boolean red;
+
+			Node(int hash, long cell) {
+				this.hash = hash;
+				this.cell = cell;
+			}
+		}
+
+		private Node root;
+
+		/** Builds the tree from a bin's cells in order */
+		Tree(long[] cells, int size) {
+			for (int i = 0; i < size; i++) {
+				add(hash(cells[i]), cells[i]);
+			}
+		}
+
+		private Tree() {
+		}
+
+		Tree copy() {
+			Tree copy = new Tree();
+			copy.root = copy(root, null);
+			return copy;
+		}
+
+		private static Node copy(Node n, Node parent) {
+			if (n == null) {
+				return null;
+			}
+			Node c = new Node(n.hash, n.cell);
+			c.parent = parent;
+			c.red = n.red;
+			c.left = copy(n.left, c);
+			c.right = copy(n.right, c);
+			return c;
+		}
+
+		/** Adds a cell that is not in the tree */
+		void add(int h, long cell) {
+			Node x = new Node(h, cell);
+			if (root == null) {
+				root = x;
+				return;
+			}
+			for (Node p = root;;) {
+				// equal hashes went by identity hash code, see the class comment
+				boolean left = p.hash >= h;
+				Node next = left ? p.left : p.right;
+				if (next == null) {
+					x.parent = p;
+					if (left) {
+						p.left = x;
+					} else {
+						p.right = x;
+					}
+					balanceInsertion(x);
+					return;
+				}
+				p = next;
+			}
+		}
+
+		/**
+		 * Removes a cell, unless the tree is small enough that the map would
+		 * turn the bin back into a list instead.
+		 *
+		 * @return whether the bin is a list now
+		 */
+		boolean remove(int h, long cell) {
+			Node r = root;
+			if (r == null || r.right == null || r.left == null || r.left.left == null) {
+				return true;
+			}
+			Node p = find(r, h, cell);
+			Node replacement;
+			Node pl = p.left, pr = p.right;
+			if (pl != null && pr != null) {
+				// swap p with its successor, links and colours but not place
+				Node s = pr;
+				while (s.left != null) {
+					s = s.left;
+				}
+				boolean c = s.red;
+				s.red = p.red;
+				p.red = c;
+				Node sr = s.right;
+				Node pp = p.parent;
+				if (s == pr) {
+					p.parent = s;
+					s.right = p;
+				} else {
+					Node sp = s.parent;
+					if ((p.parent = sp) != null) {
+						if (s == sp.left) {
+							sp.left = p;
+						} else {
+							sp.right = p;
+						}
+					}
+					if ((s.right = pr) != null) {
+						pr.parent = s;
+					}
+				}
+				p.left = null;
+				if ((p.right = sr) != null) {
+					sr.parent = p;
+				}
+				if ((s.left = pl) != null) {
+					pl.parent = s;
+				}
+				if ((s.parent = pp) == null) {
+					root = s;
+				} else if (p == pp.left) {
+					pp.left = s;
+				} else {
+					pp.right = s;
+				}
+				replacement = (sr != null) ? sr : p;
+			} else if (pl != null) {
+				replacement = pl;
+			} else if (pr != null) {
+				replacement = pr;
+			} else {
+				replacement = p;
+			}
+			if (replacement != p) {
+				Node pp = replacement.parent = p.parent;
+				if (pp == null) {
+					root = replacement;
+				} else if (p == pp.left) {
+					pp.left = replacement;
+				} else {
+					pp.right = replacement;
+				}
+				p.left = p.right = p.parent = null;
+			}
+			if (!p.red) {
+				balanceDeletion(replacement);
+			}
+			if (p == replacement && p.parent != null) {
+				if (p == p.parent.left) {
+					p.parent.left = null;
+				} else if (p == p.parent.right) {
+					p.parent.right = null;
+				}
+				p.parent = null;
+			}
+			return false;
+		}
+
+		private static Node find(Node p, int h, long cell) {
+			while (p != null) {
+				if (p.hash > h) {
+					p = p.left;
+				} else if (p.hash < h) {
+					p = p.right;
+				} else if (p.cell == cell) {
+					return p;
+				} else {
+					Node q = find(p.right, h, cell);
+					if (q != null) {
+						return q;
+					}
+					p = p.left;
+				}
+			}
+			return null;
+		}
+
+		private void rotateLeft(Node p) {
+			Node r = p.right;
+			if (r == null) {
+				return;
+			}
+			if ((p.right = r.left) != null) {
+				r.left.parent = p;
+			}
+			Node pp = r.parent = p.parent;
+			if (pp == null) {
+				root = r;
+				r.red = false;
+			} else if (pp.left == p) {
+				pp.left = r;
+			} else {
+				pp.right = r;
+			}
+			r.left = p;
+			p.parent = r;
+		}
+
+		private void rotateRight(Node p) {
+			Node l = p.left;
+			if (l == null) {
+				return;
+			}
+			if ((p.left = l.right) != null) {
+				l.right.parent = p;
+			}
+			Node pp = l.parent = p.parent;
+			if (pp == null) {
+				root = l;
+				l.red = false;
+			} else if (pp.right == p) {
+				pp.right = l;
+			} else {
+				pp.left = l;
+			}
+			l.right = p;
+			p.parent = l;
+		}
+
+		private void balanceInsertion(Node x) {
+			x.red = true;
+			for (;;) {
+				Node xp = x.parent, xpp;
+				if (xp == null) {
+					x.red = false;
+					root = x;
+					return;
+				}
+				if (!xp.red || (xpp = xp.parent) == null) {
+					return;
+				}
+				if (xp == xpp.left) {
+					Node xppr = xpp.right;
+					if (xppr != null && xppr.red) {
+						xppr.red = false;
+						xp.red = false;
+						xpp.red = true;
+						x = xpp;
+					} else {
+						if (x == xp.right) {
+							rotateLeft(x = xp);
+							xp = x.parent;
+							xpp = (xp == null) ? null : xp.parent;
+						}
+						if (xp != null) {
+							xp.red = false;
+							if (xpp != null) {
+								xpp.red = true;
+								rotateRight(xpp);
+							}
+						}
+					}
+				} else {
+					Node xppl = xpp.left;
+					if (xppl != null && xppl.red) {
+						xppl.red = false;
+						xp.red = false;
+						xpp.red = true;
+						x = xpp;
+					} else {
+						if (x == xp.left) {
+							rotateRight(x = xp);
+							xp = x.parent;
+							xpp = (xp == null) ? null : xp.parent;
+						}
+						if (xp != null) {
+							xp.red = false;
+							if (xpp != null) {
+								xpp.red = true;
+								rotateLeft(xpp);
+							}
+						}
+					}
+				}
+			}
+		}
+
+		private void balanceDeletion(Node x) {
+			for (;;) {
+				Node xp;
+				if (x == null || x == root) {
+					return;
+				}
+				if ((xp = x.parent) == null) {
+					x.red = false;
+					root = x;
+					return;
+				}
+				if (x.red) {
+					x.red = false;
+					return;
+				}
+				if (xp.left == x) {
+					Node xpr = xp.right;
+					if (xpr != null && xpr.red) {
+						xpr.red = false;
+						xp.red = true;
+						rotateLeft(xp);
+						xp = x.parent;
+						xpr = (xp == null) ? null : xp.right;
+					}
+					if (xpr == null) {
+						x = xp;
+					} else {
+						Node sl = xpr.left, sr = xpr.right;
+						if ((sr == null || !sr.red) && (sl == null || !sl.red)) {
+							xpr.red = true;
+							x = xp;
+						} else {
+							if (sr == null || !sr.red) {
+								if (sl != null) {
+									sl.red = false;
+								}
+								xpr.red = true;
+								rotateRight(xpr);
+								xp = x.parent;
+								xpr = (xp == null) ? null : xp.right;
+							}
+							if (xpr != null) {
+								xpr.red = (xp != null) && xp.red;
+								if (xpr.right != null) {
+									xpr.right.red = false;
+								}
+							}
+							if (xp != null) {
+								xp.red = false;
+								rotateLeft(xp);
+							}
+							x = root;
+						}
+					}
+				} else {
+					Node xpl = xp.left;
+					if (xpl != null && xpl.red) {
+						xpl.red = false;
+						xp.red = true;
+						rotateRight(xp);
+						xp = x.parent;
+						xpl = (xp == null) ? null : xp.left;
+					}
+					if (xpl == null) {
+						x = xp;
+					} else {
+						Node sl = xpl.left, sr = xpl.right;
+						if ((sl == null || !sl.red) && (sr == null || !sr.red)) {
+							xpl.red = true;
+							x = xp;
+						} else {
+							if (sl == null || !sl.red) {
+								if (sr != null) {
+									sr.red = false;
+								}
+								xpl.red = true;
+								rotateLeft(xpl);
+								xp = x.parent;
+								xpl = (xp == null) ? null : xp.left;
+							}
+							if (xpl != null) {
+								xpl.red = (xp != null) && xp.red;
+								if (xpl.left != null) {
+									xpl.left.red = false;
+								}
+							}
+							if (xp != null) {
+								xp.red = false;
+								rotateRight(xp);
+							}
+							x = root;
+						}
+					}
+				}
+			}
+		}
+	}
+}
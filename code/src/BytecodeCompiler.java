@@ -0,0 +1,479 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Lowers a parsed program tree into a flat int[] instruction stream with a
+ * constant pool, which is run by the switch dispatch loop in BytecodeProgram.
+ * The VM calls exactly the same Robot actions and sensors, in the same order,
+ * as the tree interpreter.
+ *
+ * Instructions are an opcode followed by at most one operand. Conditions
+ * leave 0 or 1 on the operand stack, and/or short circuit with the
+ * JUMP_IF_FALSE_KEEP/JUMP_IF_TRUE_KEEP jumps.
+ */
+public class BytecodeCompiler {
+
+	static final int
+	    HALT = 0, CONST = 1, LOAD = 2, STORE = 3,
+	    SENSE = 4, BARREL_LR = 5, BARREL_FB = 6,
+	    ADD = 7, SUB = 8, MUL = 9, DIV = 10,
+	    LT = 11, GT = 12, EQ = 13, NOT = 14,
+	    JUMP = 15, JUMP_IF_FALSE = 16, JUMP_IF_FALSE_KEEP = 17, JUMP_IF_TRUE_KEEP = 18,
+	    ACT = 19, MOVE_N = 20, WAIT_N = 21, EXEC = 22;
+
+	private int[] code = new int[64];
+	private int size = 0;
+	private ArrayList<Integer> constants = new ArrayList<>();
+	private HashMap<Integer, Integer> constantIndex = new HashMap<>();
+	private ArrayList<RobotProgramNode> foreign = new ArrayList<>();
+	private int depth = 0, maxDepth = 0;
+
+	private BytecodeCompiler() {
+	}
+
+	/**
+	 * Compiles a program tree. Any node the compiler does not know about is
+	 * kept as is and executed through its own execute method.
+	 */
+	public static RobotProgramNode compile(RobotProgramNode prog) {
+		BytecodeCompiler c = new BytecodeCompiler();
+		int variables = 0;
+		if (prog instanceof programNode) {
+			programNode p = (programNode) prog;
+			variables = p.variableCount;
+			for (RobotProgramNode n : p.nodes) {
+				c.statement(n);
+			}
+		} else {
+			c.statement(prog);
+		}
+		c.emit(HALT);
+		int[] pool = new int[c.constants.size()];
+		for (int i = 0; i < pool.length; i++) {
+			pool[i] = c.constants.get(i);
+		}
+		return new BytecodeProgram(prog, Arrays.copyOf(c.code, c.size), pool,
+				c.foreign.toArray(new RobotProgramNode[0]), variables, c.maxDepth);
+	}
+
+	// Statements
+	// ----------
+
+	private void statement(RobotProgramNode node) {
+		if (node instanceof statementNode) {
+			for (RobotProgramNode n : ((statementNode) node).nodes) {
+				statement(n);
+			}
+		} else if (node instanceof blockNode) {
+			for (RobotProgramNode n : ((blockNode) node).nodes) {
+				statement(n);
+			}
+		} else if (node instanceof actNode) {
+			act((actNode) node);
+		} else if (node instanceof loopNode) {
+			int top = size;
+			statement(((loopNode) node).node);
+			emit(JUMP, top);
+		} else if (node instanceof whileNode) {
+			whileNode w = (whileNode) node;
+			int top = size;
+			condition(w.condNode);
+			int exit = emitJump(JUMP_IF_FALSE);
+			pop();
+			statement(w.node);
+			emit(JUMP, top);
+			patch(exit);
+		} else if (node instanceof ifNode) {
+			ifStatement((ifNode) node);
+		} else if (node instanceof assignmentNode) {
+			assignmentNode a = (assignmentNode) node;
+			expression(a.expression);
+			emit(STORE, a.variable.getSlot());
+			pop();
+		} else {
+			foreign.add(node);
+			emit(EXEC, foreign.size() - 1);
+		}
+	}
+
+	private void act(actNode node) {
+		if (node.iter != null && (node.action == ACTION.move || node.action == ACTION.wait)) {
+			expression(node.iter);
+			emit(node.action == ACTION.move ? MOVE_N : WAIT_N);
+			pop();
+		} else {
+			if (node.iter != null) {
+				// evaluated for its side effects, as the tree interpreter does
+				expression(node.iter);
+				pop();
+			}
+			emit(ACT, node.action.ordinal());
+		}
+	}
+
+	/** Runs elif arms and the else as ifNode does */
+	private void ifStatement(ifNode node) {
+		ArrayList<Integer> exits = new ArrayList<>();
+		condition(node.condNode);
+		int next = emitJump(JUMP_IF_FALSE);
+		pop();
+		statement(node.node);
+		exits.add(emitJump(JUMP));
+		patch(next);
+		for (ifNode elif : node.elif) {
+			condition(elif.condNode);
+			next = emitJump(JUMP_IF_FALSE);
+			pop();
+			emit(CONST, constant(1));
+			push();
+			emit(STORE, elif.flag);
+			pop();
+			statement(elif.node);
+			patch(next);
+			// an arm that has ever matched stops the rest being tried
+			emit(LOAD, elif.flag);
+			push();
+			next = emitJump(JUMP_IF_FALSE);
+			pop();
+			exits.add(emitJump(JUMP));
+			patch(next);
+		}
+		if (node.elseNode != null && node.elif.isEmpty()) {
+			statement(node.elseNode);
+		}
+		for (int exit : exits) {
+			patch(exit);
+		}
+	}
+
+	// Conditions and expressions
+	// --------------------------
+
+	private void condition(RobotEvaluateNode node) {
+		if (!(node instanceof conditionNode)) {
+			throw new IllegalArgumentException("Cannot compile condition " + node);
+		}
+		conditionNode c = (conditionNode) node;
+		if (c.relop != null) {
+			// the tree interpreter evaluates the right hand side first
+			expression(c.num);
+			expression(c.sen);
+			switch (c.relop) {
+			case lt:
+				emit(LT);
+				break;
+			case gt:
+				emit(GT);
+				break;
+			case eq:
+				emit(EQ);
+				break;
+			}
+			pop();
+			return;
+		}
+		switch (c.cond) {
+		case not:
+			condition(c.conds.get(0));
+			emit(NOT);
+			break;
+		case and:
+		case or:
+			condition(c.conds.get(0));
+			int end = emitJump(c.cond == CONDS.and ? JUMP_IF_FALSE_KEEP : JUMP_IF_TRUE_KEEP);
+			pop();
+			condition(c.conds.get(1));
+			patch(end);
+			break;
+		}
+	}
+
+	private void expression(RobotSensorNode node) {
+		if (node instanceof expressionNode) {
+			expressionNode e = (expressionNode) node;
+			if (e.operator == null) {
+				expression(e.nodes.get(0));
+				return;
+			}
+			expression(e.nodes.get(0));
+			expression(e.nodes.get(1));
+			switch (e.operator) {
+			case add:
+				emit(ADD);
+				break;
+			case sub:
+				emit(SUB);
+				break;
+			case mul:
+				emit(MUL);
+				break;
+			case div:
+				emit(DIV);
+				break;
+			}
+			pop();
+		} else if (node instanceof numberNode) {
+			emit(CONST, constant(((numberNode) node).number));
+			push();
+		} else if (node instanceof variableNode) {
+			emit(LOAD, ((variableNode) node).getSlot());
+			push();
+		} else if (node instanceof sensorNode) {
+			sensorNode s = (sensorNode) node;
+			if (s.sen == SENSOR.barrelLR || s.sen == SENSOR.barrelFB) {
+				if (s.iter != null) {
+					expression(s.iter);
+				} else {
+					emit(CONST, constant(0));
+					push();
+				}
+				emit(s.sen == SENSOR.barrelLR ? BARREL_LR : BARREL_FB);
+			} else {
+				if (s.iter != null) {
+					expression(s.iter);
+					pop();
+				}
+				emit(SENSE, s.sen.ordinal());
+				push();
+			}
+		} else {
+			throw new IllegalArgumentException("Cannot compile expression " + node);
+		}
+	}
+
+	// Emitting
+	// --------
+
+	private int constant(int value) {
+		Integer index = constantIndex.get(value);
+		if (index == null) {
+			index = constants.size();
+			constants.add(value);
+			constantIndex.put(value, index);
+		}
+		return index;
+	}
+
+	private void push() {
+		depth++;
+		maxDepth = Math.max(maxDepth, depth);
+	}
+
+	private void pop() {
+		depth--;
+	}
+
+	private void emit(int op) {
+		if (size == code.length) {
+			code = Arrays.copyOf(code, size * 2);
+		}
+		code[size++] = op;
+	}
+
+	private void emit(int op, int operand) {
+		emit(op);
+		emit(operand);
+	}
+
+	/** Emits a jump with a placeholder target, returning where to patch it */
+	private int emitJump(int op) {
+		emit(op, -1);
+		return size - 1;
+	}
+
+	/** Points the jump operand at the current end of the code */
+	private void patch(int operand) {
+		code[operand] = size;
+	}
+}
+
+/**
+ * A compiled robot program. execute runs the instruction stream in a single
+ * switch dispatch loop, with an int[] operand stack and variable frame.
+ */
+class BytecodeProgram implements RobotProgramNode {
+	private static final SENSOR[] SENSORS = SENSOR.values();
+	private static final ACTION[] ACTIONS = ACTION.values();
+
+	final RobotProgramNode source;
+	final int[] code;
+	final int[] constants;
+	final RobotProgramNode[] foreign;
+	final int variableCount;
+	final int stackSize;
+
+	BytecodeProgram(RobotProgramNode source, int[] code, int[] constants, RobotProgramNode[] foreign,
+			int variableCount, int stackSize) {
+		this.source = source;
+		this.code = code;
+		this.constants = constants;
+		this.foreign = foreign;
+		this.variableCount = variableCount;
+		this.stackSize = stackSize;
+	}
+
+	public String toString() {
+		return source.toString();
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		final int[] code = this.code;
+		final int[] constants = this.constants;
+		final int[] stack = new int[stackSize + 1];
+		final int[] vars = new int[variableCount];
+		robot.setVariables(vars);
+		int sp = 0, pc = 0;
+		while (true) {
+			switch (code[pc++]) {
+			case BytecodeCompiler.HALT:
+				return;
+			case BytecodeCompiler.CONST:
+				stack[sp++] = constants[code[pc++]];
+				break;
+			case BytecodeCompiler.LOAD:
+				stack[sp++] = vars[code[pc++]];
+				break;
+			case BytecodeCompiler.STORE:
+				vars[code[pc++]] = stack[--sp];
+				break;
+			case BytecodeCompiler.SENSE:
+				stack[sp++] = sensor(robot, code[pc++]);
+				break;
+			case BytecodeCompiler.BARREL_LR: {
+				int n = stack[sp - 1];
+				stack[sp - 1] = robot.getBarrelLR(n > 13 ? 0 : n);
+				break;
+			}
+			case BytecodeCompiler.BARREL_FB: {
+				int n = stack[sp - 1];
+				stack[sp - 1] = robot.getBarrelFB(n > 13 ? 0 : n);
+				break;
+			}
+			case BytecodeCompiler.ADD:
+				sp--;
+				stack[sp - 1] = stack[sp - 1] + stack[sp];
+				break;
+			case BytecodeCompiler.SUB:
+				sp--;
+				stack[sp - 1] = stack[sp - 1] - stack[sp];
+				break;
+			case BytecodeCompiler.MUL:
+				sp--;
+				stack[sp - 1] = stack[sp - 1] * stack[sp];
+				break;
+			case BytecodeCompiler.DIV:
+				sp--;
+				stack[sp - 1] = stack[sp - 1] / stack[sp];
+				break;
+			// comparisons have the left hand side on top
+			case BytecodeCompiler.LT:
+				sp--;
+				stack[sp - 1] = (stack[sp] < stack[sp - 1]) ? 1 : 0;
+				break;
+			case BytecodeCompiler.GT:
+				sp--;
+				stack[sp - 1] = (stack[sp] > stack[sp - 1]) ? 1 : 0;
+				break;
+			case BytecodeCompiler.EQ:
+				sp--;
+				stack[sp - 1] = (stack[sp] == stack[sp - 1]) ? 1 : 0;
+				break;
+			case BytecodeCompiler.NOT:
+				stack[sp - 1] ^= 1;
+				break;
+			case BytecodeCompiler.JUMP:
+				if (code[pc] < pc) {
+					// a loop going round again
+					robot.checkCancelled();
+				}
+				pc = code[pc];
+				break;
+			case BytecodeCompiler.JUMP_IF_FALSE:
+				pc = (stack[--sp] == 0) ? code[pc] : pc + 1;
+				break;
+			case BytecodeCompiler.JUMP_IF_FALSE_KEEP:
+				if (stack[sp - 1] == 0) {
+					pc = code[pc];
+				} else {
+					sp--;
+					pc++;
+				}
+				break;
+			case BytecodeCompiler.JUMP_IF_TRUE_KEEP:
+				if (stack[sp - 1] != 0) {
+					pc = code[pc];
+				} else {
+					sp--;
+					pc++;
+				}
+				break;
+			case BytecodeCompiler.ACT:
+				act(robot, code[pc++]);
+				break;
+			case BytecodeCompiler.MOVE_N:
+				for (int i = stack[--sp]; i > 0; i--) {
+					robot.move();
+				}
+				break;
+			case BytecodeCompiler.WAIT_N:
+				for (int i = stack[--sp]; i > 0; i--) {
+					robot.idleWait();
+				}
+				break;
+			case BytecodeCompiler.EXEC:
+				foreign[code[pc++]].execute(robot);
+				break;
+			default:
+				throw new IllegalStateException("Bad opcode " + code[pc - 1] + " at " + (pc - 1));
+			}
+		}
+	}
+
+	private static int sensor(Robot robot, int sen) {
+		switch (SENSORS[sen]) {
+		case fuelLeft:
+			return robot.getFuel();
+		case oppLR:
+			return robot.getOpponentLR();
+		case oppFB:
+			return robot.getOpponentFB();
+		case numBarrels:
+			return robot.numBarrels();
+		case wallDist:
+			return robot.getDistanceToWall();
+		default:
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	private static void act(Robot robot, int action) {
+		switch (ACTIONS[action]) {
+		case turnL:
+			robot.turnLeft();
+			break;
+		case turnR:
+			robot.turnRight();
+			break;
+		case wait:
+			robot.idleWait();
+			break;
+		case takeFuel:
+			robot.takeFuel();
+			break;
+		case move:
+			robot.move();
+			break;
+		case turnAround:
+			robot.turnAround();
+			break;
+		case shieldOn:
+			robot.setShield(true);
+			break;
+		case shieldOff:
+			robot.setShield(false);
+			break;
+		}
+	}
+}
@@ -0,0 +1,3 @@
+enum COMP {
+	lt, gt, eq
+}
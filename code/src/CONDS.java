@@ -0,0 +1,3 @@
+enum CONDS{
+	and, or, not
+}
@@ -0,0 +1,186 @@
+import java.util.Arrays;
+
+/**
+ * A fixed number of short lists of cells, packed as in BarrelIndex.pack, that
+ * can be copied without copying the lists. A copy shares every list with the
+ * table it came from, and whichever of them changes a shared list first
+ * changes a copy of that one list instead.
+ *
+ * Until both stop sharing the array of lists, each table keeps the lists it
+ * has replaced in a small hash table of its own in front of it, which a copy
+ * does have to copy. Once that holds more than an eighth of the lists it is
+ * flattened into a new array, so copying a table costs at most an eighth of
+ * its length, and nothing if flatten was called since it last changed.
+ */
+class CellTable {
+
+	/** One list, shared by copies of a table until one of them changes it */
+	static class Row {
+		long[] cells = new long[4];
+		int size = 0;
+		/** The tag of the table that may change this row in place */
+		private Object owner;
+
+		int indexOf(long cell) {
+			for (int i = 0; i < size; i++) {
+				if (cells[i] == cell) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		void insert(int i, long cell) {
+			if (size == cells.length) {
+				cells = Arrays.copyOf(cells, size * 2);
+			}
+			System.arraycopy(cells, i, cells, i + 1, size - i);
+			cells[i] = cell;
+			size++;
+		}
+
+		void remove(int i) {
+			System.arraycopy(cells, i + 1, cells, i, size - i - 1);
+			size--;
+		}
+
+		/** A copy for another table; subclasses copy whatever they add too */
+		Row copy() {
+			return copyTo(new Row());
+		}
+
+		final Row copyTo(Row row) {
+			row.cells = cells.clone();
+			row.size = size;
+			return row;
+		}
+	}
+
+	/** Copied for each new row, so rows can be a subclass of Row */
+	private final Row empty;
+	private Row[] rows;
+	/** Whether rows is shared with a copy, so changes go in changed instead */
+	private boolean shared = false;
+	/** The rows replaced since rows was shared, by linear probing, -1 empty */
+	private int[] changedKeys;
+	private Row[] changedRows;
+	private int changedCount = 0;
+	private Object tag = new Object();
+
+	CellTable(int length, Row empty) {
+		this.empty = empty;
+		rows = new Row[length];
+	}
+
+	int length() {
+		return rows.length;
+	}
+
+	/** The row at i, which must not be changed, or null if there is none */
+	Row row(int i) {
+		if (changedCount > 0) {
+			int slot = slot(i);
+			if (changedKeys[slot] == i) {
+				return changedRows[slot];
+			}
+		}
+		return rows[i];
+	}
+
+	int size(int i) {
+		Row row = row(i);
+		return (row == null) ? 0 : row.size;
+	}
+
+	/** The row at i, made this table's own to change, empty if there was none */
+	Row writable(int i) {
+		Row row = row(i);
+		if (row != null && row.owner == tag) {
+			return row;
+		}
+		Row own = (row == null) ? empty.copy() : row.copy();
+		own.owner = tag;
+		if (!shared) {
+			rows[i] = own;
+		} else {
+			if (changedKeys == null) {
+				changedKeys = new int[16];
+				Arrays.fill(changedKeys, -1);
+				changedRows = new Row[16];
+			}
+			int slot = slot(i);
+			if (changedKeys[slot] != i) {
+				changedKeys[slot] = i;
+				changedCount++;
+			}
+			changedRows[slot] = own;
+			if (changedCount > rows.length / 8) {
+				flatten();
+			} else if (changedCount * 2 > changedKeys.length) {
+				rehash(changedKeys.length * 2);
+			}
+		}
+		return own;
+	}
+
+	/** A copy that can be changed without affecting this one */
+	CellTable copy() {
+		CellTable copy = new CellTable(0, empty);
+		copy.rows = rows;
+		copy.shared = shared = true;
+		if (changedCount > 0) {
+			copy.changedKeys = changedKeys.clone();
+			copy.changedRows = changedRows.clone();
+			copy.changedCount = changedCount;
+		}
+		// rows either might change in place are now shared
+		tag = new Object();
+		return copy;
+	}
+
+	/**
+	 * Gives this table an array of its own holding every row, so it can be
+	 * copied for nothing until it changes again.
+	 */
+	void flatten() {
+		if (!shared) {
+			return;
+		}
+		Row[] own = rows.clone();
+		for (int slot = 0; changedCount > 0 && slot < changedKeys.length; slot++) {
+			if (changedKeys[slot] != -1) {
+				own[changedKeys[slot]] = changedRows[slot];
+			}
+		}
+		rows = own;
+		shared = false;
+		changedKeys = null;
+		changedRows = null;
+		changedCount = 0;
+	}
+
+	private int slot(int i) {
+		int mask = changedKeys.length - 1;
+		int h = i * 0x9E3779B9;
+		int slot = (h ^ (h >>> 16)) & mask;
+		while (changedKeys[slot] != -1 && changedKeys[slot] != i) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash(int capacity) {
+		int[] oldKeys = changedKeys;
+		Row[] oldRows = changedRows;
+		changedKeys = new int[capacity];
+		Arrays.fill(changedKeys, -1);
+		changedRows = new Row[capacity];
+		for (int s = 0; s < oldKeys.length; s++) {
+			if (oldKeys[s] != -1) {
+				int slot = slot(oldKeys[s]);
+				changedKeys[slot] = oldKeys[s];
+				changedRows[slot] = oldRows[s];
+			}
+		}
+	}
+}
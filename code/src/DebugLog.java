@@ -0,0 +1,210 @@
+import java.io.PrintStream;
+
+/**
+ * Debug events from robots: what they do and what their sensors read. A robot
+ * reports an event as a type and up to two ints, and nothing is formatted or
+ * printed unless debugging is on (RoboGame.debugDisplay), the robot's level
+ * includes the event, its world does not DROP events, and the event reaches
+ * the sink. So with debugging off, reporting costs one check and no
+ * allocation.
+ *
+ * The default sink prints each event to System.out as it happens, so events
+ * stay in order with the robots' states. AsyncConsoleSink prints from its own
+ * thread instead, so robots never wait on the console.
+ */
+public class DebugLog {
+
+	/** Robot debug levels */
+	public static final int LEVEL_NONE = 0, LEVEL_ACTIONS = 1, LEVEL_ALL = 2;
+
+	/** Event types, with their arguments */
+	public static final int
+	    ACTION = 1,       // a = Robot.ACTION_*
+	    SHIELD = 2,       // a = 1 if turned on
+	    FUEL = 3,         // a = fuel
+	    OPP_LR = 4,       // a = position or Robot.INFINITY
+	    OPP_FB = 5,       // a = position or Robot.INFINITY
+	    NUM_BARRELS = 6,  // a = count
+	    BARREL_LR = 7,    // a = n, b = position or Robot.INFINITY
+	    BARREL_FB = 8,    // a = n, b = position or Robot.INFINITY
+	    SHIELD_IS_ON = 9; // a = 1 if on
+
+	/** Receives events from every robot, from their own threads */
+	public interface Sink {
+		void event(String robot, int type, int a, int b);
+	}
+
+	/**
+	 * Set on a world to drop its robots' events whatever RoboGame.debugDisplay
+	 * says, as headless matches run from other code do. Robots check for it
+	 * before anything else is done with an event.
+	 */
+	public static final Sink DROP = new Sink() {
+		@Override
+		public void event(String robot, int type, int a, int b) {
+		}
+	};
+
+	/** Prints events as they happen */
+	public static class ConsoleSink implements Sink {
+		private final PrintStream out;
+
+		public ConsoleSink(PrintStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void event(String robot, int type, int a, int b) {
+			out.println(format(robot, type, a, b));
+		}
+	}
+
+	/**
+	 * Queues events in a ring buffer for a daemon thread to print. Robots only
+	 * wait if it falls a whole buffer behind.
+	 */
+	public static class AsyncConsoleSink implements Sink {
+		private final PrintStream out;
+		private final String[] robots;
+		private final int[] events;
+		private long head = 0, tail = 0;
+
+		public AsyncConsoleSink(PrintStream out, int capacity) {
+			this.out = out;
+			robots = new String[capacity];
+			events = new int[capacity * 3];
+			Thread printer = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					print();
+				}
+			}, "debug-printer");
+			printer.setDaemon(true);
+			printer.start();
+		}
+
+		public AsyncConsoleSink() {
+			this(System.out, 4096);
+		}
+
+		@Override
+		public synchronized void event(String robot, int type, int a, int b) {
+			while (head - tail == robots.length) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+			int i = (int) (head % robots.length);
+			robots[i] = robot;
+			events[i * 3] = type;
+			events[i * 3 + 1] = a;
+			events[i * 3 + 2] = b;
+			head++;
+			notifyAll();
+		}
+
+		/** Waits until every event so far has been printed */
+		public synchronized void flush() throws InterruptedException {
+			while (tail != head) {
+				wait();
+			}
+		}
+
+		private void print() {
+			while (true) {
+				String robot;
+				int type, a, b;
+				synchronized (this) {
+					while (head == tail) {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							return;
+						}
+					}
+					int i = (int) (tail % robots.length);
+					robot = robots[i];
+					type = events[i * 3];
+					a = events[i * 3 + 1];
+					b = events[i * 3 + 2];
+					robots[i] = null;
+				}
+				out.println(format(robot, type, a, b));
+				synchronized (this) {
+					tail++;
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	private static volatile Sink sink = new ConsoleSink(System.out);
+
+	public static Sink getSink() {
+		return sink;
+	}
+
+	/** Where every robot's events go from now on, null to drop them */
+	public static void setSink(Sink sink) {
+		DebugLog.sink = sink;
+	}
+
+	/**
+	 * Passes an event to the robot's world's own sink if it has one, otherwise
+	 * the sink every world shares. Called by Robot once it has checked its
+	 * level.
+	 */
+	static void event(Sink own, String robot, int type, int a, int b) {
+		Sink s = (own != null) ? own : sink;
+		if (s != null) {
+			s.event(robot, type, a, b);
+		}
+	}
+
+	/** The text of an event, as robots have always printed it */
+	public static String format(String robot, int type, int a, int b) {
+		return robot + " robot: " + describe(type, a, b);
+	}
+
+	private static String describe(int type, int a, int b) {
+		switch (type) {
+		case ACTION:
+			switch (a) {
+			case Robot.ACTION_MOVE:
+				return "move";
+			case Robot.ACTION_TURN_LEFT:
+				return "turnL";
+			case Robot.ACTION_TURN_RIGHT:
+				return "turnR";
+			case Robot.ACTION_TURN_AROUND:
+				return "turnAround";
+			case Robot.ACTION_TAKE_FUEL:
+				return "takeFuel";
+			case Robot.ACTION_WAIT:
+				return "wait";
+			}
+			return "action " + a;
+		case SHIELD:
+			return "shield " + ((a != 0) ? "on" : "off");
+		case FUEL:
+			return "fuel=" + a;
+		// INFINTY is misspelt in transcripts people already compare against
+		case OPP_LR:
+			return "oppLR=" + ((a == Robot.INFINITY) ? "INFINTY" : "" + a);
+		case OPP_FB:
+			return "oppFB=" + ((a == Robot.INFINITY) ? "INFINTY" : "" + a);
+		case NUM_BARRELS:
+			return "numBarrels = " + a;
+		case BARREL_LR:
+			return ((a == 0) ? "" : (a + "th")) + "closestBarrelLR = " + ((b == Robot.INFINITY) ? "INFINITY" : "" + b);
+		case BARREL_FB:
+			return ((a == 0) ? "" : (a + "th")) + "closestBarrelFB = " + ((b == Robot.INFINITY) ? "INFINITY" : "" + b);
+		case SHIELD_IS_ON:
+			return (a != 0) ? "shield is on" : "shield is off";
+		}
+		return "event " + type;
+	}
+}
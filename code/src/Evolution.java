@@ -0,0 +1,751 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evolves robot programs by genetic programming, scoring each one in headless
+ * matches against a fixed pool of opponent programs.
+ *
+ * Programs are trees of the parser's own nodes, in the shape the parser
+ * builds them (every statement in a statementNode, every expression in an
+ * expressionNode), so any interpreter can run them and SourcePrinter can
+ * print them. Children are bred by subtree crossover and subtree mutation: a
+ * random statement, condition or expression of one parent is replaced by one
+ * of the same kind from another parent, or by a new random one. Parents are
+ * copied, never changed.
+ *
+ * A candidate plays every opponent with both colours on each of a few world
+ * seeds fixed for the whole run, so its score never changes and only new
+ * children need playing. Candidates are ranked on points, as in Tournament,
+ * then on fuel left over the opponent's, then on fewer nodes. Matches run on
+ * all cores with nothing parsed, printed or written. A candidate with a loop
+ * that could go round without acting is ranked last without playing, as it
+ * would only spin until Robot.SPIN_LIMIT stops it.
+ *
+ * Usage: Evolution opponents-dir [generations] [population] [threads] [seed] [best.prog] [ancestors-dir]
+ */
+public class Evolution {
+
+	/** Matches still going after this many ticks are drawn */
+	public static final int TICK_LIMIT = 500;
+	/** Children with more statements, conditions and expressions are bred again */
+	public static final int MAX_NODES = 150;
+
+	private static final int INITIAL_DEPTH = 4, MUTATION_DEPTH = 2;
+	private static final int SELECTION_SIZE = 4, ELITES = 2;
+	private static final double CROSSOVER_RATE = 0.9, MUTATION_RATE = 0.3;
+
+	/** The kinds of node that are swapped for one another */
+	private static final int STATEMENT = 0, CONDITION = 1, EXPRESSION = 2;
+
+	private final List<RobotProgramNode> opponents = new ArrayList<>();
+	private final List<RobotProgramNode> ancestors = new ArrayList<>();
+	private int interpreter = World.INTERPRETER_TREE;
+	private int games = 2;
+	private int population = 100;
+	private long seed = new Random().nextLong();
+	private SplitMix64 rand;
+	private long[] seeds;
+
+	/** A program and its score, which is set once it has played */
+	static class Candidate {
+		final programNode program;
+		/** Statements, conditions and expressions in the program */
+		final int[] counts;
+		final int nodes;
+		final boolean stalls;
+		boolean scored;
+		int points, margin, won, drawn, lost;
+
+		Candidate(Rebuild r) {
+			program = r.copy;
+			counts = r.counts;
+			nodes = counts[STATEMENT] + counts[CONDITION] + counts[EXPRESSION];
+			stalls = r.stalls;
+		}
+	}
+
+	private static final Comparator<Candidate> BEST_FIRST = new Comparator<Candidate>() {
+		@Override
+		public int compare(Candidate a, Candidate b) {
+			if (a.points != b.points) {
+				return b.points - a.points;
+			}
+			if (a.margin != b.margin) {
+				return Integer.compare(b.margin, a.margin);
+			}
+			return a.nodes - b.nodes;
+		}
+	};
+
+	public void addOpponent(RobotProgramNode prog) {
+		opponents.add(prog);
+	}
+
+	/** Adds a program to the first generation, which is otherwise random */
+	public void addAncestor(RobotProgramNode prog) {
+		ancestors.add(prog);
+	}
+
+	public void setInterpreter(int interpreter) {
+		this.interpreter = interpreter;
+	}
+
+	/** The number of world seeds each candidate plays every opponent on */
+	public void setGames(int games) {
+		this.games = games;
+	}
+
+	public void setPopulation(int population) {
+		this.population = population;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Runs the given number of generations, printing a line for each.
+	 *
+	 * @return the final generation, best first
+	 */
+	public List<Candidate> evolve(int generations, int threads) throws InterruptedException {
+		rand = new SplitMix64(seed);
+		seeds = new long[games];
+		for (int g = 0; g < games; g++) {
+			seeds[g] = rand.nextLong();
+		}
+		List<Candidate> pop = new ArrayList<>();
+		for (RobotProgramNode prog : ancestors) {
+			if (pop.size() < population) {
+				pop.add(copy(prog));
+			}
+		}
+		while (pop.size() < population) {
+			Candidate c = new Candidate(rebuild(randomProgram(INITIAL_DEPTH), -1, -1, null));
+			if (c.nodes <= MAX_NODES) {
+				pop.add(c);
+			}
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			for (int gen = 0;; gen++) {
+				long start = System.nanoTime();
+				int played = score(pop, pool);
+				Collections.sort(pop, BEST_FIRST);
+				report(gen, pop, played, (System.nanoTime() - start) / 1000000);
+				if (gen + 1 >= generations) {
+					return pop;
+				}
+				List<Candidate> next = new ArrayList<>(pop.subList(0, Math.min(ELITES, pop.size())));
+				while (next.size() < population) {
+					next.add(breed(pop));
+				}
+				pop = next;
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	// Fitness
+	// -------
+
+	/**
+	 * Plays every candidate that has no score yet, one task per candidate.
+	 *
+	 * @return the number of matches played
+	 */
+	private int score(List<Candidate> pop, ExecutorService pool) throws InterruptedException {
+		List<Future<?>> running = new ArrayList<>();
+		int played = 0;
+		for (final Candidate c : pop) {
+			if (!c.scored) {
+				c.scored = true;
+				if (c.stalls) {
+					c.points = -1;
+				} else {
+					played += opponents.size() * seeds.length * 2;
+					running.add(pool.submit(new Runnable() {
+						@Override
+						public void run() {
+							play(c);
+						}
+					}));
+				}
+			}
+		}
+		for (Future<?> f : running) {
+			try {
+				f.get();
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+		return played;
+	}
+
+	private void play(Candidate c) {
+		for (RobotProgramNode opponent : opponents) {
+			for (long s : seeds) {
+				for (int side = 1; side <= 2; side++) {
+					// crossover can put zero under a division, so candidates crash often
+					World world = (side == 1) ? Tournament.play(c.program, opponent, s, interpreter, TICK_LIMIT, false)
+							: Tournament.play(opponent, c.program, s, interpreter, TICK_LIMIT, false);
+					int result = world.getResult();
+					if (result == side) {
+						c.won++;
+						c.points += Tournament.POINTS_WIN;
+					} else if (result == 3 - side) {
+						c.lost++;
+					} else {
+						// as in Tournament, matches that reach the tick limit are draws
+						c.drawn++;
+						c.points += Tournament.POINTS_DRAW;
+					}
+					WorldSnapshot end = world.snapshot();
+					c.margin += end.getFuel(side) - end.getFuel(3 - side);
+				}
+			}
+		}
+	}
+
+	private void report(int gen, List<Candidate> pop, int played, long millis) {
+		Candidate best = pop.get(0);
+		long total = 0;
+		for (Candidate c : pop) {
+			total += Math.max(0, c.points);
+		}
+		System.out.printf("gen %3d  best %4d pts %+6d fuel %3d nodes (W%d D%d L%d)  mean %6.1f pts  %d matches in %dms%n",
+				gen, best.points, best.margin, best.nodes, best.won, best.drawn, best.lost,
+				(double) total / pop.size(), played, millis);
+	}
+
+	// Breeding
+	// --------
+
+	private Candidate breed(List<Candidate> pop) {
+		for (int attempt = 0; attempt < 8; attempt++) {
+			Candidate child = select(pop);
+			if (rand.nextDouble() < CROSSOVER_RATE) {
+				child = crossover(child, select(pop));
+			}
+			if (rand.nextDouble() < MUTATION_RATE) {
+				child = mutate(child);
+			}
+			if (child.nodes <= MAX_NODES) {
+				return child;
+			}
+		}
+		// an unchanged parent keeps its score and costs nothing to play
+		return select(pop);
+	}
+
+	/** The best of a few candidates picked at random */
+	private Candidate select(List<Candidate> pop) {
+		Candidate best = pop.get(rand.nextInt(pop.size()));
+		for (int i = 1; i < SELECTION_SIZE; i++) {
+			Candidate c = pop.get(rand.nextInt(pop.size()));
+			if (BEST_FIRST.compare(c, best) < 0) {
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	/** A copy of a with a node replaced by one of the same kind from b */
+	private Candidate crossover(Candidate a, Candidate b) {
+		int site = rand.nextInt(a.nodes);
+		int kind = kindOf(a, site);
+		if (b.counts[kind] == 0) {
+			return a;
+		}
+		Rebuild donor = rebuild(b.program, kind, rand.nextInt(b.counts[kind]), null);
+		return new Candidate(rebuild(a.program, kind, site - first(a, kind), donor.found));
+	}
+
+	/** A copy of a with a node replaced by a new random one of the same kind */
+	private Candidate mutate(Candidate a) {
+		int site = rand.nextInt(a.nodes);
+		int kind = kindOf(a, site);
+		Object fresh;
+		if (kind == STATEMENT) {
+			fresh = randomStatement(MUTATION_DEPTH);
+		} else if (kind == CONDITION) {
+			fresh = randomCondition(MUTATION_DEPTH);
+		} else {
+			fresh = randomExpression(MUTATION_DEPTH);
+		}
+		return new Candidate(rebuild(a.program, kind, site - first(a, kind), fresh));
+	}
+
+	/** Sites are numbered statements first, then conditions, then expressions */
+	private static int kindOf(Candidate c, int site) {
+		int kind = STATEMENT;
+		while (site >= first(c, kind) + c.counts[kind]) {
+			kind++;
+		}
+		return kind;
+	}
+
+	private static int first(Candidate c, int kind) {
+		int n = 0;
+		for (int k = 0; k < kind; k++) {
+			n += c.counts[k];
+		}
+		return n;
+	}
+
+	private static Candidate copy(RobotProgramNode prog) {
+		return new Candidate(rebuild(prog, -1, -1, null));
+	}
+
+	private static Rebuild rebuild(RobotProgramNode prog, int kind, int target, Object insert) {
+		Rebuild r = new Rebuild(kind, target, insert);
+		r.copy = r.program(prog);
+		return r;
+	}
+
+	/**
+	 * Copies a program, replacing the target'th node of one kind (counting in
+	 * the order they appear in the source) with a copy of insert, or if insert
+	 * is null just noting that node in found. Statement sites are the
+	 * parser's statementNodes, expression sites its expressionNodes.
+	 *
+	 * Variables are given new slots by name as they are copied, so subtrees
+	 * can move between programs whose variables were numbered differently.
+	 */
+	static class Rebuild {
+		final int kind, target;
+		final Object insert;
+		Object found;
+		programNode copy;
+		/** Sites of each kind in the copy */
+		final int[] counts = new int[3];
+		/** Whether the copy has a loop that could go round without acting */
+		boolean stalls;
+		private final Map<String, Integer> slots = new HashMap<>();
+
+		Rebuild(int kind, int target, Object insert) {
+			this.kind = kind;
+			this.target = target;
+			this.insert = insert;
+		}
+
+		/** Counts a site, unless it is the one being replaced */
+		private boolean replace(int k, Object node) {
+			int index = counts[k]++;
+			if (k == kind && index == target && found == null) {
+				found = node;
+				if (insert != null) {
+					// the copy of insert is counted instead
+					counts[k]--;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		programNode program(RobotProgramNode prog) {
+			programNode node = new programNode();
+			if (prog instanceof programNode) {
+				for (RobotProgramNode n : ((programNode) prog).nodes) {
+					node.addNode(statement(n));
+				}
+			} else {
+				node.addNode(statement(prog));
+			}
+			node.setVariableCount(slots.size());
+			return node;
+		}
+
+		RobotProgramNode statement(RobotProgramNode n) {
+			if (n instanceof statementNode) {
+				if (replace(STATEMENT, n)) {
+					return statement((RobotProgramNode) insert);
+				}
+				statementNode node = new statementNode();
+				for (RobotProgramNode s : ((statementNode) n).nodes) {
+					node.addNode(statement(s));
+				}
+				return node;
+			}
+			if (n instanceof blockNode) {
+				blockNode node = new blockNode();
+				for (RobotProgramNode s : ((blockNode) n).nodes) {
+					node.addNode(statement(s));
+				}
+				return node;
+			}
+			if (n instanceof actNode) {
+				actNode act = (actNode) n;
+				actNode node = new actNode();
+				node.setAction(act.action);
+				node.setIterations((act.iter == null) ? null : expression(act.iter));
+				return node;
+			}
+			if (n instanceof assignmentNode) {
+				assignmentNode assign = (assignmentNode) n;
+				assignmentNode node = new assignmentNode();
+				node.setVariable(variable(assign.variable));
+				node.setExpression(expression(assign.expression));
+				return node;
+			}
+			if (n instanceof loopNode) {
+				loopNode node = new loopNode();
+				node.addNode(statement(((loopNode) n).node));
+				stalls |= !acts(node.node);
+				return node;
+			}
+			if (n instanceof whileNode) {
+				whileNode w = (whileNode) n;
+				whileNode node = new whileNode();
+				node.addCond(condition(w.condNode));
+				node.addNode(statement(w.node));
+				stalls |= !acts(node.node);
+				return node;
+			}
+			if (n instanceof ifNode) {
+				ifNode i = (ifNode) n;
+				ifNode node = new ifNode();
+				node.addCond(condition(i.condNode));
+				node.addNode(statement(i.node));
+				for (ifNode elif : i.elif) {
+					ifNode e = new ifNode();
+					e.addCond(condition(elif.condNode));
+					e.addNode(statement(elif.node));
+					e.setFlag(flagSlot());
+					node.addElif(e);
+				}
+				if (i.elseNode != null) {
+					node.setElseNode(statement(i.elseNode));
+				}
+				return node;
+			}
+			throw new IllegalArgumentException("Cannot breed " + n.getClass().getName());
+		}
+
+		RobotEvaluateNode condition(RobotEvaluateNode n) {
+			if (!(n instanceof conditionNode)) {
+				throw new IllegalArgumentException("Cannot breed " + n.getClass().getName());
+			}
+			if (replace(CONDITION, n)) {
+				return condition((RobotEvaluateNode) insert);
+			}
+			conditionNode c = (conditionNode) n;
+			conditionNode node = new conditionNode();
+			if (c.relop != null) {
+				node.setRelop(c.relop);
+				node.setSen(expression(c.sen));
+				node.setNum(expression(c.num));
+			} else {
+				node.setCond(c.cond);
+				for (RobotEvaluateNode e : c.conds) {
+					node.addCond(condition(e));
+				}
+			}
+			return node;
+		}
+
+		RobotSensorNode expression(RobotSensorNode n) {
+			if (n instanceof expressionNode) {
+				if (replace(EXPRESSION, n)) {
+					return expression((RobotSensorNode) insert);
+				}
+				expressionNode e = (expressionNode) n;
+				expressionNode node = new expressionNode();
+				node.setOp(e.operator);
+				for (RobotSensorNode s : e.nodes) {
+					node.addNode(expression(s));
+				}
+				return node;
+			}
+			if (n instanceof sensorNode) {
+				sensorNode s = (sensorNode) n;
+				sensorNode node = new sensorNode();
+				node.setSen(s.sen);
+				node.setIter((s.iter == null) ? null : expression(s.iter));
+				return node;
+			}
+			if (n instanceof numberNode) {
+				numberNode node = new numberNode();
+				node.setNumber(((numberNode) n).number);
+				return node;
+			}
+			if (n instanceof variableNode) {
+				return variable((variableNode) n);
+			}
+			throw new IllegalArgumentException("Cannot breed " + n.getClass().getName());
+		}
+
+		/** A slot of its own for an elif arm, see ifNode */
+		private int flagSlot() {
+			int slot = slots.size();
+			// a name no variable can have
+			slots.put("elif " + slot, slot);
+			return slot;
+		}
+
+		private variableNode variable(variableNode v) {
+			Integer slot = slots.get(v.getName());
+			if (slot == null) {
+				slot = slots.size();
+				slots.put(v.getName(), slot);
+			}
+			variableNode node = new variableNode();
+			node.setVariableName(v.getName());
+			node.setSlot(slot);
+			return node;
+		}
+	}
+
+	/**
+	 * Whether a loop body always takes at least one tick: it has, outside any
+	 * if or loop of its own, an action that waits for the tick.
+	 */
+	static boolean acts(RobotProgramNode n) {
+		List<RobotProgramNode> nodes = null;
+		if (n instanceof statementNode) {
+			nodes = ((statementNode) n).nodes;
+		} else if (n instanceof blockNode) {
+			nodes = ((blockNode) n).nodes;
+		}
+		if (nodes != null) {
+			for (RobotProgramNode s : nodes) {
+				if (acts(s)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		if (!(n instanceof actNode)) {
+			return false;
+		}
+		actNode act = (actNode) n;
+		switch (act.action) {
+		case shieldOn:
+		case shieldOff:
+			// these change the shield straight away
+			return false;
+		case move:
+		case wait:
+			// move(0) does nothing, so only a positive constant is safe
+			return act.iter == null || constant(act.iter) > 0;
+		default:
+			return true;
+		}
+	}
+
+	/** The value of a constant expression the parser wrapped, or 0 */
+	private static int constant(RobotSensorNode n) {
+		while (n instanceof expressionNode && ((expressionNode) n).operator == null) {
+			n = ((expressionNode) n).nodes.get(0);
+		}
+		return (n instanceof numberNode) ? ((numberNode) n).number : 0;
+	}
+
+	// Random programs
+	// ---------------
+
+	private programNode randomProgram(int depth) {
+		programNode node = new programNode();
+		if (rand.nextInt(4) != 0) {
+			// most programs that do anything useful go round forever
+			statementNode s = new statementNode();
+			loopNode loop = new loopNode();
+			loop.addNode(randomBlock(depth - 1));
+			s.addNode(loop);
+			node.addNode(s);
+		} else {
+			for (int i = 1 + rand.nextInt(3); i > 0; i--) {
+				node.addNode(randomStatement(depth - 1));
+			}
+		}
+		return node;
+	}
+
+	private statementNode randomStatement(int depth) {
+		statementNode node = new statementNode();
+		int r = rand.nextInt(10);
+		if (depth <= 0 || r < 5) {
+			node.addNode(randomAct());
+		} else if (r < 8) {
+			ifNode i = new ifNode();
+			i.addCond(randomCondition(depth - 1));
+			i.addNode(randomBlock(depth - 1));
+			if (rand.nextInt(4) == 0) {
+				ifNode elif = new ifNode();
+				elif.addCond(randomCondition(depth - 1));
+				elif.addNode(randomBlock(depth - 1));
+				i.addElif(elif);
+			}
+			if (rand.nextInt(2) == 0) {
+				i.setElseNode(randomBlock(depth - 1));
+			}
+			node.addNode(i);
+		} else if (r < 9) {
+			whileNode w = new whileNode();
+			w.addCond(randomCondition(depth - 1));
+			w.addNode(randomBlock(depth - 1));
+			node.addNode(w);
+		} else {
+			loopNode loop = new loopNode();
+			loop.addNode(randomBlock(depth - 1));
+			node.addNode(loop);
+		}
+		return node;
+	}
+
+	private blockNode randomBlock(int depth) {
+		blockNode node = new blockNode();
+		for (int i = 1 + rand.nextInt(3); i > 0; i--) {
+			node.addNode(randomStatement(depth));
+		}
+		return node;
+	}
+
+	private actNode randomAct() {
+		actNode node = new actNode();
+		ACTION action = ACTION.values()[rand.nextInt(ACTION.values().length)];
+		node.setAction(action);
+		if ((action == ACTION.move || action == ACTION.wait) && rand.nextInt(4) == 0) {
+			node.setIterations(randomNumber(1, 5));
+		}
+		return node;
+	}
+
+	private conditionNode randomCondition(int depth) {
+		conditionNode node = new conditionNode();
+		if (depth > 0 && rand.nextInt(4) == 0) {
+			CONDS cond = CONDS.values()[rand.nextInt(CONDS.values().length)];
+			node.setCond(cond);
+			node.addCond(randomCondition(depth - 1));
+			if (cond != CONDS.not) {
+				node.addCond(randomCondition(depth - 1));
+			}
+		} else {
+			node.setRelop(COMP.values()[rand.nextInt(COMP.values().length)]);
+			node.setSen(randomSensor());
+			node.setNum(randomExpression(depth - 1));
+		}
+		return node;
+	}
+
+	private expressionNode randomExpression(int depth) {
+		int r = rand.nextInt(10);
+		if (r < 4) {
+			return randomSensor();
+		}
+		if (depth <= 0 || r < 8) {
+			return randomNumber(-5, 15);
+		}
+		expressionNode node = new expressionNode();
+		node.setOp(OP.values()[rand.nextInt(OP.values().length)]);
+		node.addNode(randomExpression(depth - 1));
+		node.addNode(randomExpression(depth - 1));
+		return node;
+	}
+
+	private expressionNode randomSensor() {
+		sensorNode sen = new sensorNode();
+		sen.setSen(SENSOR.values()[rand.nextInt(SENSOR.values().length)]);
+		if ((sen.sen == SENSOR.barrelLR || sen.sen == SENSOR.barrelFB) && rand.nextInt(4) == 0) {
+			sen.setIter(randomNumber(0, 3));
+		}
+		expressionNode node = new expressionNode();
+		node.addNode(sen);
+		return node;
+	}
+
+	private expressionNode randomNumber(int min, int max) {
+		numberNode num = new numberNode();
+		num.setNumber(min + rand.nextInt(max - min + 1));
+		expressionNode node = new expressionNode();
+		node.addNode(num);
+		return node;
+	}
+
+	// Command line
+	// ------------
+
+	private static List<RobotProgramNode> programs(File dir) {
+		List<RobotProgramNode> progs = new ArrayList<>();
+		File[] files = dir.listFiles();
+		if (files == null) {
+			System.out.println("Not a directory: " + dir);
+			return progs;
+		}
+		Arrays.sort(files);
+		for (File f : files) {
+			if (f.isFile() && f.getName().endsWith(".prog")) {
+				RobotProgramNode prog = Parser.parseFile(f);
+				if (prog == null) {
+					System.out.println("Skipping " + f.getName());
+				} else {
+					progs.add(prog);
+				}
+			}
+		}
+		return progs;
+	}
+
+	public static void main(String[] args) throws InterruptedException, IOException {
+		if (args.length == 0) {
+			System.out.println(
+					"Usage: Evolution opponents-dir [generations] [population] [threads] [seed] [best.prog] [ancestors-dir]");
+			return;
+		}
+		Evolution e = new Evolution();
+		for (RobotProgramNode prog : programs(new File(args[0]))) {
+			e.addOpponent(prog);
+		}
+		if (e.opponents.isEmpty()) {
+			System.out.println("No opponents to play");
+			return;
+		}
+		int generations = (args.length > 1) ? Integer.parseInt(args[1]) : 50;
+		if (args.length > 2) {
+			e.setPopulation(Integer.parseInt(args[2]));
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (args.length > 3) {
+			threads = Integer.parseInt(args[3]);
+		}
+		if (args.length > 4) {
+			e.setSeed(Long.parseLong(args[4]));
+		}
+		if (args.length > 6) {
+			for (RobotProgramNode prog : programs(new File(args[6]))) {
+				e.addAncestor(prog);
+			}
+		}
+
+		long start = System.nanoTime();
+		Candidate best = e.evolve(generations, threads).get(0);
+		long millis = (System.nanoTime() - start) / 1000000;
+		String source = SourcePrinter.print(best.program);
+		System.out.println(generations + " generations in " + millis + "ms, seed " + e.getSeed());
+		System.out.println("Best program, " + best.points + " points:");
+		System.out.print(source);
+		if (args.length > 5) {
+			Files.write(new File(args[5]).toPath(), source.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+}
@@ -0,0 +1,186 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for the game: parsing a program file, each
+ * world tick, each robot action and a sample of sensor reads. Every event
+ * from a match carries the world's match id, so a recording can be split
+ * into matches and each broken down into ticks, actions and reads.
+ *
+ * Events cost nothing much unless a recording has them enabled: callers
+ * check shouldCommit before filling in any field, and sensor reads are only
+ * looked at one in SENSOR_SAMPLE.
+ *
+ * jfr print --categories RoboGame recording.jfr
+ */
+public class GameEvents {
+
+	/** A robot makes a sensor event of one read in this many */
+	static final int SENSOR_SAMPLE = 16;
+
+	private GameEvents() {
+	}
+
+	@Name("robogame.Parse")
+	@Label("Parse Program File")
+	@Category("RoboGame")
+	@Description("Reading and parsing a robot program file, cached programs are not parsed again")
+	static class ParseEvent extends Event {
+		@Label("File")
+		String file;
+
+		@Label("Source Size")
+		@DataAmount(DataAmount.BYTES)
+		long sourceSize;
+
+		@Label("Nodes")
+		@Description("Nodes in the program tree, 0 if it did not parse")
+		int nodes;
+	}
+
+	@Name("robogame.Tick")
+	@Label("World Tick")
+	@Category("RoboGame")
+	@Description("Resolving every robot's action and moving the world on one tick")
+	static class TickEvent extends Event {
+		@Label("Match")
+		long match;
+
+		@Label("Tick")
+		int tick;
+
+		@Label("Robots Alive")
+		int alive;
+
+		@Label("Barrels")
+		int barrels;
+
+		@Label("Result")
+		@Description("The winning robot, 0 for a draw, -1 while the match goes on")
+		int result;
+	}
+
+	@Name("robogame.Action")
+	@Label("Robot Action")
+	@Category("RoboGame")
+	@Description("A robot's action, from the program asking until the world has applied it")
+	static class ActionEvent extends Event {
+		@Label("Match")
+		long match;
+
+		@Label("Robot")
+		int robot;
+
+		@Label("Tick")
+		int tick;
+
+		@Label("Action")
+		String action;
+
+		@Label("Fuel Before")
+		int fuelBefore;
+
+		@Label("Fuel After")
+		int fuelAfter;
+	}
+
+	@Name("robogame.SensorRead")
+	@Label("Sensor Read")
+	@Category("RoboGame")
+	@Description("One sensor read in SENSOR_SAMPLE of each robot's")
+	static class SensorEvent extends Event {
+		@Label("Match")
+		long match;
+
+		@Label("Robot")
+		int robot;
+
+		@Label("Tick")
+		int tick;
+
+		@Label("Sensor")
+		String sensor;
+
+		@Label("Argument")
+		@Description("Which barrel, for the barrel sensors")
+		int argument;
+
+		@Label("Value")
+		int value;
+	}
+
+	/** The name robot programs use for one of the Robot.ACTION_ constants */
+	static String actionName(int action) {
+		switch (action) {
+		case Robot.ACTION_MOVE:
+			return "move";
+		case Robot.ACTION_TURN_LEFT:
+			return "turnL";
+		case Robot.ACTION_TURN_RIGHT:
+			return "turnR";
+		case Robot.ACTION_TURN_AROUND:
+			return "turnAround";
+		case Robot.ACTION_TAKE_FUEL:
+			return "takeFuel";
+		case Robot.ACTION_WAIT:
+			return "wait";
+		}
+		return "action " + action;
+	}
+
+	/** Counts the nodes of a program tree, 0 for null */
+	static int nodes(Object n) {
+		if (n == null) {
+			return 0;
+		}
+		int count = 1;
+		if (n instanceof programNode) {
+			for (RobotProgramNode s : ((programNode) n).nodes) {
+				count += nodes(s);
+			}
+		} else if (n instanceof statementNode) {
+			for (RobotProgramNode s : ((statementNode) n).nodes) {
+				count += nodes(s);
+			}
+		} else if (n instanceof blockNode) {
+			for (RobotProgramNode s : ((blockNode) n).nodes) {
+				count += nodes(s);
+			}
+		} else if (n instanceof actNode) {
+			count += nodes(((actNode) n).iter);
+		} else if (n instanceof assignmentNode) {
+			count += nodes(((assignmentNode) n).expression);
+		} else if (n instanceof loopNode) {
+			count += nodes(((loopNode) n).node);
+		} else if (n instanceof whileNode) {
+			whileNode w = (whileNode) n;
+			count += nodes(w.condNode) + nodes(w.node);
+		} else if (n instanceof ifNode) {
+			ifNode i = (ifNode) n;
+			count += nodes(i.condNode) + nodes(i.node) + nodes(i.elseNode);
+			for (ifNode e : i.elif) {
+				count += nodes(e);
+			}
+		} else if (n instanceof conditionNode) {
+			conditionNode c = (conditionNode) n;
+			if (c.relop != null) {
+				count += nodes(c.sen) + nodes(c.num);
+			} else {
+				for (RobotEvaluateNode sub : c.conds) {
+					count += nodes(sub);
+				}
+			}
+		} else if (n instanceof expressionNode) {
+			for (RobotSensorNode sub : ((expressionNode) n).nodes) {
+				count += nodes(sub);
+			}
+		} else if (n instanceof sensorNode) {
+			count += nodes(((sensorNode) n).iter);
+		}
+		return count;
+	}
+}
@@ -0,0 +1,373 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Translates a parsed program into a real JVM class, so HotSpot can inline and
+ * optimise robot logic like ordinary Java. The program becomes the body of
+ * accept(Robot), calling the Robot actions and sensors directly, with every
+ * variable held in a local.
+ *
+ * The generated source is compiled in memory with javax.tools and defined in
+ * its own class loader. Classes are kept for as long as the optimised tree
+ * they were compiled from, which Optimiser keeps for as long as the parsed
+ * tree. Programs parsed through the ProgramCache are held by it, so their
+ * classes stay loaded until ProgramCache.clear; for trees built some other
+ * way, such as Evolution's, the class can be unloaded once they are dropped.
+ * If no compiler is available (a JRE rather than a JDK) or the program cannot
+ * be compiled, the bytecode VM is used instead.
+ */
+public class JitCompiler {
+
+	private static final AtomicInteger classCount = new AtomicInteger();
+
+	/** Compiled classes, per tree, so a cached tree is only compiled once */
+	private static final Map<RobotProgramNode, Consumer<Robot>> compiled = Collections
+			.synchronizedMap(new WeakHashMap<RobotProgramNode, Consumer<Robot>>());
+
+	private StringBuilder src = new StringBuilder();
+	private int temps = 0;
+	private int indent = 2;
+
+	private JitCompiler() {
+	}
+
+	public static RobotProgramNode compile(RobotProgramNode prog) {
+		Consumer<Robot> body = compiled.get(prog);
+		if (body == null) {
+			try {
+				body = load(prog);
+			} catch (RuntimeException e) {
+				System.out.println("JIT unavailable, using the bytecode VM: " + e.getMessage());
+				return BytecodeCompiler.compile(prog);
+			}
+			compiled.put(prog, body);
+		}
+		return new JitProgram(prog, body);
+	}
+
+	/** The Java source the program is translated to */
+	static String source(RobotProgramNode prog, String className) {
+		JitCompiler c = new JitCompiler();
+		int variables = (prog instanceof programNode) ? ((programNode) prog).variableCount : 0;
+		c.src.append("public final class ").append(className).append(" implements java.util.function.Consumer<Robot> {\n");
+		c.src.append("\tpublic void accept(Robot r) {\n");
+		for (int i = 0; i < variables; i++) {
+			c.line("int v" + i + " = 0;");
+		}
+		c.statement(prog);
+		c.src.append("\t}\n\n");
+		// comparisons take the right hand side first, the order the tree
+		// interpreter evaluates them in
+		c.src.append("\tprivate static boolean lt(int num, int sen) { return sen < num; }\n");
+		c.src.append("\tprivate static boolean gt(int num, int sen) { return sen > num; }\n");
+		c.src.append("\tprivate static boolean eq(int num, int sen) { return sen == num; }\n");
+		c.src.append("\tprivate static int nth(int n) { return (n > 13) ? 0 : n; }\n");
+		c.src.append("}\n");
+		return c.src.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Consumer<Robot> load(RobotProgramNode prog) {
+		String className = "RobotJit" + classCount.incrementAndGet();
+		String source = source(prog, className);
+		JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+		if (javac == null) {
+			throw new IllegalStateException("no system Java compiler");
+		}
+		final Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+		StandardJavaFileManager standard = javac.getStandardFileManager(null, null, null);
+		JavaFileManager files = new ForwardingJavaFileManager<StandardJavaFileManager>(standard) {
+			@Override
+			public JavaFileObject getJavaFileForOutput(Location location, final String name, JavaFileObject.Kind kind,
+					FileObject sibling) {
+				return new SimpleJavaFileObject(URI.create("mem:///" + name + kind.extension), kind) {
+					@Override
+					public OutputStream openOutputStream() {
+						ByteArrayOutputStream out = new ByteArrayOutputStream();
+						classes.put(name, out);
+						return out;
+					}
+				};
+			}
+		};
+		JavaFileObject unit = new SimpleJavaFileObject(URI.create("mem:///" + className + ".java"),
+				JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		String classpath = System.getProperty("java.class.path");
+		boolean ok = javac.getTask(null, files, null, Arrays.asList("-classpath", classpath, "-nowarn"),
+				null, Collections.singletonList(unit)).call();
+		if (!ok || !classes.containsKey(className)) {
+			throw new IllegalStateException("could not compile " + className);
+		}
+		final byte[] bytes = classes.get(className).toByteArray();
+		ClassLoader loader = new ClassLoader(JitCompiler.class.getClassLoader()) {
+			@Override
+			protected Class<?> findClass(String name) throws ClassNotFoundException {
+				if (name.equals(className)) {
+					return defineClass(name, bytes, 0, bytes.length);
+				}
+				throw new ClassNotFoundException(name);
+			}
+		};
+		try {
+			return (Consumer<Robot>) loader.loadClass(className).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Statements
+	// ----------
+
+	/**
+	 * Translates a statement, returning false if it can never complete (a
+	 * loop, or an if and else without elif arms neither of which can), in
+	 * which case anything after it in the same block is dead and left out,
+	 * as javac rejects unreachable statements.
+	 */
+	private boolean statement(RobotProgramNode node) {
+		if (node instanceof programNode) {
+			return statements(((programNode) node).nodes);
+		} else if (node instanceof statementNode) {
+			return statements(((statementNode) node).nodes);
+		} else if (node instanceof blockNode) {
+			return statements(((blockNode) node).nodes);
+		} else if (node instanceof actNode) {
+			act((actNode) node);
+		} else if (node instanceof loopNode) {
+			line("for (;;) {");
+			line("\tr.checkCancelled();");
+			block(((loopNode) node).node);
+			line("}");
+			return false;
+		} else if (node instanceof whileNode) {
+			whileNode w = (whileNode) node;
+			line("while (" + condition(w.condNode) + ") {");
+			line("\tr.checkCancelled();");
+			block(w.node);
+			line("}");
+		} else if (node instanceof ifNode) {
+			ifNode n = (ifNode) node;
+			line("if (" + condition(n.condNode) + ") {");
+			boolean completes = block(n.node);
+			if (!n.elif.isEmpty()) {
+				line("} else {");
+				indent++;
+				arms(n.elif, 0);
+				indent--;
+				// no arm need match, and the else never runs
+				completes = true;
+			} else if (n.elseNode != null) {
+				line("} else {");
+				completes |= block(n.elseNode);
+			} else {
+				completes = true;
+			}
+			line("}");
+			return completes;
+		} else if (node instanceof assignmentNode) {
+			assignmentNode a = (assignmentNode) node;
+			line("v" + a.variable.getSlot() + " = " + expression(a.expression) + ";");
+		} else {
+			throw new IllegalArgumentException("cannot compile " + node.getClass().getSimpleName());
+		}
+		return true;
+	}
+
+	private boolean statements(Iterable<RobotProgramNode> nodes) {
+		for (RobotProgramNode n : nodes) {
+			if (!statement(n)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The elif arms from the i'th on, as ifNode runs them: an arm that has
+	 * ever matched stops the rest being tried.
+	 */
+	private void arms(List<ifNode> arms, int i) {
+		ifNode arm = arms.get(i);
+		line("if (" + condition(arm.condNode) + ") {");
+		line("\tv" + arm.flag + " = 1;");
+		block(arm.node);
+		line("}");
+		if (i + 1 < arms.size()) {
+			line("if (v" + arm.flag + " == 0) {");
+			indent++;
+			arms(arms, i + 1);
+			indent--;
+			line("}");
+		}
+	}
+
+	private boolean block(RobotProgramNode node) {
+		indent++;
+		boolean completes = statement(node);
+		indent--;
+		return completes;
+	}
+
+	private void act(actNode node) {
+		String call;
+		switch (node.action) {
+		case move:
+			call = "r.move();";
+			break;
+		case turnL:
+			call = "r.turnLeft();";
+			break;
+		case turnR:
+			call = "r.turnRight();";
+			break;
+		case takeFuel:
+			call = "r.takeFuel();";
+			break;
+		case wait:
+			call = "r.idleWait();";
+			break;
+		case turnAround:
+			call = "r.turnAround();";
+			break;
+		case shieldOn:
+			call = "r.setShield(true);";
+			break;
+		default:
+			call = "r.setShield(false);";
+			break;
+		}
+		if (node.iter == null) {
+			line(call);
+		} else if (node.action == ACTION.move || node.action == ACTION.wait) {
+			String t = "t" + temps++;
+			line("for (int " + t + " = " + expression(node.iter) + "; " + t + " > 0; " + t + "--) " + call);
+		} else {
+			// evaluated for its side effects, as the tree interpreter does
+			line("int t" + temps++ + " = " + expression(node.iter) + ";");
+			line(call);
+		}
+	}
+
+	// Conditions and expressions
+	// --------------------------
+
+	private String condition(RobotEvaluateNode node) {
+		if (!(node instanceof conditionNode)) {
+			throw new IllegalArgumentException("cannot compile " + node.getClass().getSimpleName());
+		}
+		conditionNode c = (conditionNode) node;
+		if (c.relop != null) {
+			// a method call, so comparing two literals is never a constant
+			// expression (which would make javac reject the code after it)
+			return c.relop.name() + "(" + expression(c.num) + ", " + expression(c.sen) + ")";
+		}
+		switch (c.cond) {
+		case not:
+			return "!" + condition(c.conds.get(0));
+		case and:
+			return "(" + condition(c.conds.get(0)) + " && " + condition(c.conds.get(1)) + ")";
+		default:
+			return "(" + condition(c.conds.get(0)) + " || " + condition(c.conds.get(1)) + ")";
+		}
+	}
+
+	private String expression(RobotSensorNode node) {
+		if (node instanceof expressionNode) {
+			expressionNode e = (expressionNode) node;
+			if (e.operator == null) {
+				return expression(e.nodes.get(0));
+			}
+			String op;
+			switch (e.operator) {
+			case add:
+				op = " + ";
+				break;
+			case sub:
+				op = " - ";
+				break;
+			case mul:
+				op = " * ";
+				break;
+			default:
+				op = " / ";
+				break;
+			}
+			return "(" + expression(e.nodes.get(0)) + op + expression(e.nodes.get(1)) + ")";
+		} else if (node instanceof numberNode) {
+			return "(" + ((numberNode) node).number + ")";
+		} else if (node instanceof variableNode) {
+			return "v" + ((variableNode) node).getSlot();
+		} else if (node instanceof sensorNode) {
+			sensorNode s = (sensorNode) node;
+			switch (s.sen) {
+			case fuelLeft:
+				return "r.getFuel()";
+			case oppLR:
+				return "r.getOpponentLR()";
+			case oppFB:
+				return "r.getOpponentFB()";
+			case numBarrels:
+				return "r.numBarrels()";
+			case wallDist:
+				return "r.getDistanceToWall()";
+			case barrelLR:
+				return "r.getBarrelLR(" + ((s.iter == null) ? "0" : "nth(" + expression(s.iter) + ")") + ")";
+			default:
+				return "r.getBarrelFB(" + ((s.iter == null) ? "0" : "nth(" + expression(s.iter) + ")") + ")";
+			}
+		}
+		throw new IllegalArgumentException("cannot compile " + node.getClass().getSimpleName());
+	}
+
+	private void line(String code) {
+		for (int i = 0; i < indent; i++) {
+			src.append('\t');
+		}
+		src.append(code).append('\n');
+	}
+}
+
+/**
+ * A program compiled to a JVM class by the JitCompiler.
+ */
+class JitProgram implements RobotProgramNode {
+	final RobotProgramNode source;
+	final Consumer<Robot> body;
+
+	JitProgram(RobotProgramNode source, Consumer<Robot> body) {
+		this.source = source;
+		this.body = body;
+	}
+
+	public String toString() {
+		return source.toString();
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		body.accept(robot);
+	}
+}
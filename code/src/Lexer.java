@@ -0,0 +1,341 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A single pass, regex free tokenizer for robot programs. The whole source is
+ * split up front into parallel arrays of token kinds, token text and payloads
+ * (enum ordinal for keywords, value for integers) so the parser can dispatch
+ * on the kind of the next token without any pattern matching.
+ *
+ * Tokens are split the same way the old Scanner delimiter did: on whitespace,
+ * and either side of any of (){},; characters.
+ *
+ * The source offset of each token is kept too, and when asked to (see
+ * keepPositions) the lexer remembers where each node the parser builds starts.
+ */
+public class Lexer {
+
+	private TOKEN[] kinds = new TOKEN[64];
+	private String[] texts = new String[64];
+	private long[] values = new long[64];
+	private int[] starts = new int[64];
+	private int size = 0;
+	private int pos = 0;
+	private HashMap<String, Integer> slots = new HashMap<>();
+	/** Frame slots handed out, to variables and elif arms */
+	private int frameSize = 0;
+	/** The source length, and where the token being added starts */
+	private final int length;
+	private int start;
+	/** Where each marked node starts, null unless keepPositions was called */
+	private Map<Object, Integer> positions;
+
+	public Lexer(CharSequence src) {
+		int len = src.length();
+		length = len;
+		int i = 0;
+		while (i < len) {
+			char c = src.charAt(i);
+			start = i;
+			if (isWhitespace(c)) {
+				i++;
+			} else if (isPunctuation(c)) {
+				add(punctuation(c), String.valueOf(c), 0);
+				i++;
+			} else {
+				while (i < len && !isWhitespace(src.charAt(i)) && !isPunctuation(src.charAt(i))) {
+					i++;
+				}
+				word(src.subSequence(start, i).toString());
+			}
+		}
+	}
+
+	// Scanner style access
+	// --------------------
+
+	/** Whether there are any tokens left */
+	public boolean hasNext() {
+		return pos < size;
+	}
+
+	/** Whether the next token is of the given kind */
+	public boolean hasNext(TOKEN kind) {
+		return pos < size && kinds[pos] == kind;
+	}
+
+	/** The kind of the next token, EOF if there are none left */
+	public TOKEN peek() {
+		return (pos < size) ? kinds[pos] : TOKEN.EOF;
+	}
+
+	/**
+	 * The payload of the next token, the enum ordinal for keywords or the
+	 * value for numbers
+	 */
+	public long peekValue() {
+		return (pos < size) ? values[pos] : 0;
+	}
+
+	/** Consumes and returns the text of the next token, null if there is none */
+	public String next() {
+		return (pos < size) ? texts[pos++] : null;
+	}
+
+	/** Whether the next token is a number that fits in an int */
+	public boolean hasNextInt() {
+		return hasNext(TOKEN.NUM) && values[pos] >= Integer.MIN_VALUE && values[pos] <= Integer.MAX_VALUE;
+	}
+
+	/** Consumes the next token and returns it as an int */
+	public int nextInt() {
+		return (int) values[pos++];
+	}
+
+	/** Where the next token starts in the source, its length if none are left */
+	public int offset() {
+		return (pos < size) ? starts[pos] : length;
+	}
+
+	// Node positions
+	// --------------
+
+	/** Remembers where each node marked from now on starts */
+	public void keepPositions() {
+		positions = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Records that the node starts at the next token, if positions are being
+	 * kept. Called by the parser as it makes each node.
+	 */
+	public void mark(Object node) {
+		if (positions != null) {
+			positions.put(node, offset());
+		}
+	}
+
+	/** The source offset of every marked node, null if none were kept */
+	public Map<Object, Integer> positions() {
+		return positions;
+	}
+
+	// Variables
+	// ---------
+
+	/**
+	 * The frame slot of a variable, variables are numbered in the order they
+	 * are first seen while parsing.
+	 */
+	public int variableSlot(String name) {
+		Integer slot = slots.get(name);
+		if (slot == null) {
+			slot = frameSize++;
+			slots.put(name, slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * A frame slot of its own for an elif arm, set once the arm has matched,
+	 * see ifNode.
+	 */
+	public int flagSlot() {
+		return frameSize++;
+	}
+
+	/** The number of frame slots handed out so far */
+	public int variableCount() {
+		return frameSize;
+	}
+
+	// Tokenizing
+	// ----------
+
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B';
+	}
+
+	private static boolean isPunctuation(char c) {
+		return c == '(' || c == ')' || c == '{' || c == '}' || c == ',' || c == ';';
+	}
+
+	private static TOKEN punctuation(char c) {
+		switch (c) {
+		case '(':
+			return TOKEN.OPENPAREN;
+		case ')':
+			return TOKEN.CLOSEPAREN;
+		case '{':
+			return TOKEN.OPENBRACE;
+		case '}':
+			return TOKEN.CLOSEBRACE;
+		case ',':
+			return TOKEN.COMMA;
+		default:
+			return TOKEN.SEMI;
+		}
+	}
+
+	/**
+	 * Classifies a word token. Keywords are resolved with a string switch
+	 * (a hash lookup), anything else is checked by hand for a number or a
+	 * variable name.
+	 */
+	private void word(String w) {
+		switch (w) {
+		case "loop":
+			add(TOKEN.LOOP, w, 0);
+			return;
+		case "if":
+			add(TOKEN.IF, w, 0);
+			return;
+		case "elif":
+			add(TOKEN.ELIF, w, 0);
+			return;
+		case "else":
+			add(TOKEN.ELSE, w, 0);
+			return;
+		case "while":
+			add(TOKEN.WHILE, w, 0);
+			return;
+		case "=":
+			add(TOKEN.ASSIGN, w, 0);
+			return;
+		case "move":
+			add(TOKEN.ACT, w, ACTION.move.ordinal());
+			return;
+		case "turnL":
+			add(TOKEN.ACT, w, ACTION.turnL.ordinal());
+			return;
+		case "turnR":
+			add(TOKEN.ACT, w, ACTION.turnR.ordinal());
+			return;
+		case "takeFuel":
+			add(TOKEN.ACT, w, ACTION.takeFuel.ordinal());
+			return;
+		case "wait":
+			add(TOKEN.ACT, w, ACTION.wait.ordinal());
+			return;
+		case "turnAround":
+			add(TOKEN.ACT, w, ACTION.turnAround.ordinal());
+			return;
+		case "shieldOn":
+			add(TOKEN.ACT, w, ACTION.shieldOn.ordinal());
+			return;
+		case "shieldOff":
+			add(TOKEN.ACT, w, ACTION.shieldOff.ordinal());
+			return;
+		case "fuelLeft":
+			add(TOKEN.SEN, w, SENSOR.fuelLeft.ordinal());
+			return;
+		case "oppLR":
+			add(TOKEN.SEN, w, SENSOR.oppLR.ordinal());
+			return;
+		case "oppFB":
+			add(TOKEN.SEN, w, SENSOR.oppFB.ordinal());
+			return;
+		case "numBarrels":
+			add(TOKEN.SEN, w, SENSOR.numBarrels.ordinal());
+			return;
+		case "barrelLR":
+			add(TOKEN.SEN, w, SENSOR.barrelLR.ordinal());
+			return;
+		case "barrelFB":
+			add(TOKEN.SEN, w, SENSOR.barrelFB.ordinal());
+			return;
+		case "wallDist":
+			add(TOKEN.SEN, w, SENSOR.wallDist.ordinal());
+			return;
+		case "add":
+			add(TOKEN.OP, w, OP.add.ordinal());
+			return;
+		case "sub":
+			add(TOKEN.OP, w, OP.sub.ordinal());
+			return;
+		case "mul":
+			add(TOKEN.OP, w, OP.mul.ordinal());
+			return;
+		case "div":
+			add(TOKEN.OP, w, OP.div.ordinal());
+			return;
+		case "lt":
+			add(TOKEN.RELOP, w, COMP.lt.ordinal());
+			return;
+		case "gt":
+			add(TOKEN.RELOP, w, COMP.gt.ordinal());
+			return;
+		case "eq":
+			add(TOKEN.RELOP, w, COMP.eq.ordinal());
+			return;
+		case "and":
+			add(TOKEN.COND, w, CONDS.and.ordinal());
+			return;
+		case "or":
+			add(TOKEN.COND, w, CONDS.or.ordinal());
+			return;
+		case "not":
+			add(TOKEN.COND, w, CONDS.not.ordinal());
+			return;
+		}
+		if (isVariable(w)) {
+			add(TOKEN.VAR, w, 0);
+		} else if (!number(w)) {
+			add(TOKEN.OTHER, w, 0);
+		}
+	}
+
+	/** -?[0-9]+, clamped to long so that out of range ints can be rejected */
+	private boolean number(String w) {
+		int i = (w.charAt(0) == '-') ? 1 : 0;
+		if (i == w.length()) {
+			return false;
+		}
+		long value = 0;
+		for (; i < w.length(); i++) {
+			char c = w.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+			if (value <= Integer.MAX_VALUE + 1L) {
+				value = value * 10 + (c - '0');
+			}
+		}
+		add(TOKEN.NUM, w, (w.charAt(0) == '-') ? -value : value);
+		return true;
+	}
+
+	/** \$[A-Za-z][A-Za-z0-9]* */
+	private static boolean isVariable(String w) {
+		if (w.length() < 2 || w.charAt(0) != '$' || !isLetter(w.charAt(1))) {
+			return false;
+		}
+		for (int i = 2; i < w.length(); i++) {
+			char c = w.charAt(i);
+			if (!isLetter(c) && (c < '0' || c > '9')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isLetter(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+	}
+
+	private void add(TOKEN kind, String text, long value) {
+		if (size == kinds.length) {
+			kinds = Arrays.copyOf(kinds, size * 2);
+			texts = Arrays.copyOf(texts, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+			starts = Arrays.copyOf(starts, size * 2);
+		}
+		kinds[size] = kind;
+		texts[size] = text;
+		values[size] = value;
+		starts[size] = start;
+		size++;
+	}
+}
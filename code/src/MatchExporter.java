@@ -0,0 +1,362 @@
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * Exports a match as pictures, without a screen. The match is played
+ * unpaced and recorded as a WorldSnapshot per tick, then every snapshot is
+ * drawn offscreen by the same code WorldComponent paints with and written out
+ * as a numbered PNG, or as one frame of an animated GIF. Frames are drawn and
+ * encoded on several threads, each restoring snapshots into a world of its
+ * own; GIF frames are compressed there too, each as a GIF of its own, and
+ * joined into one file at the end. Robots are drawn where they are at each
+ * tick, not part way through an action.
+ *
+ * Works with java.awt.headless=true.
+ *
+ * Usage: MatchExporter red.prog blue.prog out [seed] [ticks] [threads] [tree|vm|jit|spec]
+ * where out is a directory for PNG frames, or a file ending .gif.
+ */
+public class MatchExporter {
+
+	public static final int FORMAT_PNG = 0, FORMAT_GIF = 1;
+
+	private final BufferedImage grid;
+	private final BufferedImage fuelImage;
+	private final int extent;
+	private int format = FORMAT_PNG;
+	private int threads = Runtime.getRuntime().availableProcessors();
+	/** Hundredths of a second per GIF frame */
+	private int frameDelay = 10;
+
+	public MatchExporter(int size) throws IOException {
+		grid = WorldComponent.drawGrid(size, null);
+		fuelImage = ImageIO.read(new File("assets/fuel.png"));
+		extent = size * WorldComponent.GRID_SIZE;
+	}
+
+	/** One of the FORMAT_ constants */
+	public void setFormat(int format) {
+		this.format = format;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public void setFrameDelay(int hundredths) {
+		this.frameDelay = hundredths;
+	}
+
+	/**
+	 * Plays a match headless, red as robot 1, and snapshots the world before
+	 * it starts and after every tick.
+	 */
+	public static List<WorldSnapshot> record(RobotProgramNode red, RobotProgramNode blue, long seed, int interpreter,
+			int tickLimit) {
+		World world = new World(false, seed);
+		world.setTickLimit(tickLimit);
+		world.setTrace(new StateTrace(StateTrace.OFF));
+		world.setDebugSink(DebugLog.DROP);
+		world.getRobot(1).setProgram(World.forInterpreter(red, interpreter));
+		world.getRobot(2).setProgram(World.forInterpreter(blue, interpreter));
+
+		final List<WorldSnapshot> frames = Collections.synchronizedList(new ArrayList<WorldSnapshot>());
+		frames.add(world.snapshot());
+		world.addTickListener(new World.TickListener() {
+			@Override
+			public void ticked(World world) {
+				frames.add(world.snapshot());
+			}
+		});
+		try {
+			Tournament.join(world.start(), "match with seed " + seed);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			world.reset();
+		} catch (ExecutionException e) {
+			// the frames up to the crash are still worth having
+			e.getCause().printStackTrace();
+		}
+		synchronized (frames) {
+			return new ArrayList<>(frames);
+		}
+	}
+
+	/**
+	 * Writes the frames to out, a directory of frame00000.png onwards or a
+	 * GIF file, depending on the format.
+	 */
+	public void export(List<WorldSnapshot> frames, File out) throws IOException, InterruptedException {
+		if (format == FORMAT_PNG) {
+			if (!out.isDirectory() && !out.mkdirs()) {
+				throw new IOException("Can't create " + out);
+			}
+			render(frames, out);
+		} else {
+			writeGif(render(frames, null), out);
+		}
+	}
+
+	/**
+	 * Draws every frame, in contiguous runs across the threads. With a
+	 * directory each frame is written there as a PNG straight away and
+	 * nothing is kept; otherwise each frame is returned as a GIF of its own,
+	 * for writeGif to join.
+	 */
+	private byte[][] render(final List<WorldSnapshot> frames, final File dir)
+			throws IOException, InterruptedException {
+		final byte[][] gifs = (dir == null) ? new byte[frames.size()][] : null;
+		int workers = Math.max(1, Math.min(threads, frames.size()));
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			List<Future<?>> running = new ArrayList<>();
+			for (int w = 0; w < workers; w++) {
+				final int from = frames.size() * w / workers, to = frames.size() * (w + 1) / workers;
+				running.add(pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						World world = frames.get(from).fork(false);
+						BufferedImage canvas = new BufferedImage(extent, extent, BufferedImage.TYPE_INT_RGB);
+						// writers are not thread safe, so each thread has its own
+						ImageWriter gif = (dir == null) ? ImageIO.getImageWritersByFormatName("gif").next() : null;
+						try {
+							for (int i = from; i < to; i++) {
+								world.restore(frames.get(i));
+								draw(world, canvas);
+								if (dir == null) {
+									gifs[i] = gif(gif, indexed(canvas));
+								} else {
+									write(canvas, new File(dir, String.format("frame%05d.png", i)));
+								}
+							}
+						} finally {
+							if (gif != null) {
+								gif.dispose();
+							}
+						}
+					}
+				}));
+			}
+			for (Future<?> f : running) {
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof UncheckedIOException) {
+						throw ((UncheckedIOException) e.getCause()).getCause();
+					}
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+		return gifs;
+	}
+
+	private void draw(World world, BufferedImage canvas) {
+		Graphics2D g = canvas.createGraphics();
+		g.setColor(Color.WHITE);
+		g.fillRect(0, 0, extent, extent);
+		WorldComponent.paintWorld(g, world, grid, fuelImage, 0);
+		g.dispose();
+	}
+
+	/** The frame in the standard 256 colour palette, so the GIF writer has nothing to do but compress */
+	private static BufferedImage indexed(BufferedImage frame) {
+		BufferedImage image = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_BYTE_INDEXED);
+		Graphics2D g = image.createGraphics();
+		g.drawImage(frame, 0, 0, null);
+		g.dispose();
+		return image;
+	}
+
+	/**
+	 * Writes a PNG with the quickest deflate level, which makes files about a
+	 * third bigger than the default but takes a third less time.
+	 */
+	private static void write(BufferedImage image, File file) {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+		try {
+			file.delete();
+			ImageOutputStream stream = ImageIO.createImageOutputStream(file);
+			try {
+				writer.setOutput(stream);
+				ImageWriteParam param = writer.getDefaultWriteParam();
+				param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+				param.setCompressionQuality(0.9f);
+				writer.write(null, new IIOImage(image, null, null), param);
+			} finally {
+				stream.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			writer.dispose();
+		}
+	}
+
+	/**
+	 * One frame as a GIF of its own, so frames can be compressed on several
+	 * threads. Its graphic control extension sets the frame delay.
+	 */
+	private byte[] gif(ImageWriter writer, BufferedImage image) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ImageOutputStream stream = new MemoryCacheImageOutputStream(bytes);
+			try {
+				writer.setOutput(stream);
+				// as a sequence, so the palette goes in a global table that
+				// writeGif can check against the first frame's
+				writer.prepareWriteSequence(null);
+				IIOMetadata meta = writer.getDefaultImageMetadata(new ImageTypeSpecifier(image), null);
+				String name = meta.getNativeMetadataFormatName();
+				IIOMetadataNode root = (IIOMetadataNode) meta.getAsTree(name);
+				IIOMetadataNode control = new IIOMetadataNode("GraphicControlExtension");
+				control.setAttribute("disposalMethod", "none");
+				control.setAttribute("userInputFlag", "FALSE");
+				control.setAttribute("transparentColorFlag", "FALSE");
+				control.setAttribute("delayTime", Integer.toString(frameDelay));
+				control.setAttribute("transparentColorIndex", "0");
+				root.appendChild(control);
+				meta.setFromTree(name, root);
+				writer.writeToSequence(new IIOImage(image, null, meta), null);
+				writer.endWriteSequence();
+			} finally {
+				stream.close();
+			}
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/** The NETSCAPE2.0 application extension, sub-block 1, loop count 0: forever */
+	private static final byte[] LOOP_FOREVER = { 0x21, (byte) 0xff, 11, 'N', 'E', 'T', 'S', 'C', 'A', 'P', 'E', '2',
+			'.', '0', 3, 1, 0, 0, 0 };
+
+	/**
+	 * Joins frames, each a GIF of its own from gif, into one GIF that loops
+	 * forever: the header, screen and colour table of the first frame, then
+	 * every frame's extensions and image in order. Frames all have the
+	 * standard palette, but any whose colour table differs from the first's
+	 * would keep its own as a local table.
+	 */
+	private static void writeGif(byte[][] gifs, File out) throws IOException {
+		byte[] first = gifs[0];
+		int tableEnd = blocks(first);
+		OutputStream stream = new BufferedOutputStream(new FileOutputStream(out));
+		try {
+			stream.write(first, 0, tableEnd);
+			stream.write(LOOP_FOREVER);
+			for (byte[] gif : gifs) {
+				int from = blocks(gif);
+				// everything up to the trailer, a single 0x3b
+				int to = gif.length - 1;
+				if (gif[to] != 0x3b) {
+					throw new IOException("GIF frame has no trailer");
+				}
+				if (Arrays.equals(gif, 13, from, first, 13, tableEnd)) {
+					stream.write(gif, from, to - from);
+				} else {
+					int image = image(gif, from);
+					stream.write(gif, from, image + 9 - from);
+					// the local colour table flag and size, then the table
+					stream.write(gif[image + 9] | 0x80 | (gif[10] & 7));
+					stream.write(gif, 13, from - 13);
+					stream.write(gif, image + 10, to - image - 10);
+				}
+			}
+			stream.write(0x3b);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/** Where a GIF's blocks start, after its header, screen descriptor and any global colour table */
+	private static int blocks(byte[] gif) {
+		int flags = gif[10];
+		return 13 + (((flags & 0x80) != 0) ? 3 << ((flags & 7) + 1) : 0);
+	}
+
+	/** Where the first image descriptor is, skipping the extensions before it */
+	private static int image(byte[] gif, int at) throws IOException {
+		while (gif[at] == 0x21) {
+			at += 2;
+			while (gif[at] != 0) {
+				at += (gif[at] & 0xff) + 1;
+			}
+			at++;
+		}
+		if (gif[at] != 0x2c || (gif[at + 9] & 0x80) != 0) {
+			throw new IOException("Unexpected GIF frame layout");
+		}
+		return at;
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.out.println("Usage: MatchExporter red.prog blue.prog out [seed] [ticks] [threads] [tree|vm|jit|spec]");
+			return;
+		}
+		RobotProgramNode red = Parser.parseFile(new File(args[0]));
+		RobotProgramNode blue = Parser.parseFile(new File(args[1]));
+		File out = new File(args[2]);
+		long seed = (args.length > 3) ? Long.parseLong(args[3]) : 0;
+		int ticks = (args.length > 4) ? Integer.parseInt(args[4]) : Tournament.TICK_LIMIT;
+		int interpreter = World.INTERPRETER_TREE;
+		if (args.length > 6) {
+			if (args[6].equals("vm")) {
+				interpreter = World.INTERPRETER_VM;
+			} else if (args[6].equals("jit")) {
+				interpreter = World.INTERPRETER_JIT;
+			} else if (args[6].equals("spec")) {
+				interpreter = World.INTERPRETER_SPECIALISING;
+			}
+		}
+		if (red == null || blue == null) {
+			return;
+		}
+
+		long start = System.nanoTime();
+		List<WorldSnapshot> frames = record(red, blue, seed, interpreter, ticks);
+		long recorded = System.nanoTime();
+
+		MatchExporter exporter = new MatchExporter(frames.get(0).getSize());
+		if (args.length > 5) {
+			exporter.setThreads(Integer.parseInt(args[5]));
+		}
+		if (out.getName().toLowerCase().endsWith(".gif")) {
+			exporter.setFormat(FORMAT_GIF);
+		}
+		exporter.export(frames, out);
+		long done = System.nanoTime();
+		System.out.println(frames.size() + " frames, recorded in " + (recorded - start) / 1000000 + "ms, exported in "
+				+ (done - recorded) / 1000000 + "ms on " + exporter.threads + " threads");
+	}
+}
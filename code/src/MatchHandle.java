@@ -0,0 +1,81 @@
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The running robot tasks of a started World, returned by World.start so the
+ * caller can wait for the match to end.
+ */
+public class MatchHandle {
+
+	private final List<Future<?>> tasks;
+
+	MatchHandle(List<Future<?>> tasks) {
+		this.tasks = tasks;
+	}
+
+	/**
+	 * Waits for every robot's program to end.
+	 *
+	 * @throws ExecutionException
+	 *             once they have all ended, if any program crashed; the cause
+	 *             is the first crash, any others are suppressed by it
+	 */
+	public void join() throws InterruptedException, ExecutionException {
+		ExecutionException crash = null;
+		for (Future<?> task : tasks) {
+			try {
+				task.get();
+			} catch (ExecutionException e) {
+				crash = crashed(crash, e);
+			}
+		}
+		if (crash != null) {
+			throw crash;
+		}
+	}
+
+	/**
+	 * Waits up to the given time for every robot's program to end.
+	 *
+	 * @return whether they all ended
+	 * @throws ExecutionException
+	 *             as join does, if they all ended in time
+	 */
+	public boolean join(long millis) throws InterruptedException, ExecutionException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(millis);
+		ExecutionException crash = null;
+		for (Future<?> task : tasks) {
+			try {
+				task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch (ExecutionException e) {
+				crash = crashed(crash, e);
+			} catch (TimeoutException e) {
+				return false;
+			}
+		}
+		if (crash != null) {
+			throw crash;
+		}
+		return true;
+	}
+
+	private static ExecutionException crashed(ExecutionException first, ExecutionException e) {
+		if (first == null) {
+			return e;
+		}
+		first.addSuppressed(e.getCause());
+		return first;
+	}
+
+	public boolean isDone() {
+		for (Future<?> task : tasks) {
+			if (!task.isDone()) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
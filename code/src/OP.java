@@ -0,0 +1,3 @@
+enum OP {
+	add, mul, div, sub
+}
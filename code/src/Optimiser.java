@@ -0,0 +1,353 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Simplifies a parsed program before it is run. Constant expressions are
+ * folded into numberNodes, if/elif/else arms and while loops whose condition
+ * is constant are removed (or a constant true while becomes a loop), and the
+ * single child statementNode/expressionNode wrappers the parser always makes
+ * are dropped, as are blocks nested directly in blocks.
+ *
+ * Folding uses Java int arithmetic, exactly as the interpreter does, and a
+ * division by a constant zero is left to fail at run time. Sensor reads are
+ * never removed or reordered, as they print debug output and can be
+ * interrupted, so a condition is only treated as constant if deciding it
+ * does not skip a sensor the interpreter would have read.
+ *
+ * The original tree is left untouched (it may be shared through the
+ * ProgramCache); a new tree is built and remembered for the original.
+ */
+public class Optimiser {
+
+	private static final Map<RobotProgramNode, RobotProgramNode> optimised = Collections
+			.synchronizedMap(new WeakHashMap<RobotProgramNode, RobotProgramNode>());
+
+	private Optimiser() {
+	}
+
+	public static RobotProgramNode optimise(RobotProgramNode prog) {
+		RobotProgramNode result = optimised.get(prog);
+		if (result == null) {
+			result = program(prog);
+			optimised.put(prog, result);
+		}
+		return result;
+	}
+
+	private static RobotProgramNode program(RobotProgramNode prog) {
+		if (!(prog instanceof programNode)) {
+			List<RobotProgramNode> out = new ArrayList<>();
+			statement(prog, out);
+			return (out.size() == 1) ? out.get(0) : block(out);
+		}
+		programNode p = (programNode) prog;
+		programNode node = new programNode();
+		node.setVariableCount(p.variableCount);
+		List<RobotProgramNode> out = new ArrayList<>();
+		for (RobotProgramNode n : p.nodes) {
+			statement(n, out);
+		}
+		node.nodes.addAll(out);
+		return node;
+	}
+
+	// Statements
+	// ----------
+
+	/**
+	 * Appends the optimised form of a statement to out, which may be nothing
+	 * (a dead branch) or several statements (a flattened block).
+	 */
+	private static void statement(RobotProgramNode node, List<RobotProgramNode> out) {
+		if (node instanceof statementNode) {
+			for (RobotProgramNode n : ((statementNode) node).nodes) {
+				statement(n, out);
+			}
+		} else if (node instanceof blockNode) {
+			for (RobotProgramNode n : ((blockNode) node).nodes) {
+				statement(n, out);
+			}
+		} else if (node instanceof actNode) {
+			actNode a = (actNode) node;
+			actNode act = new actNode();
+			act.setAction(a.action);
+			act.setIterations((a.iter == null) ? null : expression(a.iter));
+			out.add(act);
+		} else if (node instanceof assignmentNode) {
+			assignmentNode a = (assignmentNode) node;
+			assignmentNode assign = new assignmentNode();
+			assign.setVariable(a.variable);
+			assign.setExpression(expression(a.expression));
+			out.add(assign);
+		} else if (node instanceof loopNode) {
+			loopNode loop = new loopNode();
+			loop.addNode(body(((loopNode) node).node));
+			out.add(loop);
+		} else if (node instanceof whileNode) {
+			whileNode w = (whileNode) node;
+			RobotEvaluateNode cond = condition(w.condNode);
+			Boolean value = constant(cond);
+			if (value == null) {
+				whileNode loop = new whileNode();
+				loop.addCond(cond);
+				loop.addNode(body(w.node));
+				out.add(loop);
+			} else if (value) {
+				loopNode loop = new loopNode();
+				loop.addNode(body(w.node));
+				out.add(loop);
+			}
+		} else if (node instanceof ifNode) {
+			ifStatement((ifNode) node, out);
+		} else {
+			out.add(node);
+		}
+	}
+
+	/**
+	 * Without elif arms, a constant condition leaves just the then or else
+	 * block. With them the else never runs and an arm that has matched stops
+	 * the arms after it being tried (see ifNode), so the arms whose condition
+	 * is constant false are dropped, as is everything after the first arm
+	 * whose condition is constant true.
+	 */
+	private static void ifStatement(ifNode node, List<RobotProgramNode> out) {
+		RobotEvaluateNode cond = condition(node.condNode);
+		Boolean value = constant(cond);
+		if (value != null && value) {
+			statement(body(node.node), out);
+			return;
+		}
+		if (node.elif.isEmpty()) {
+			RobotProgramNode elseBlock = (node.elseNode == null) ? null : body(node.elseNode);
+			if (value != null) {
+				if (elseBlock != null) {
+					statement(elseBlock, out);
+				}
+				return;
+			}
+			ifNode result = new ifNode();
+			result.addCond(cond);
+			result.addNode(body(node.node));
+			result.setElseNode(elseBlock);
+			out.add(result);
+			return;
+		}
+
+		List<ifNode> arms = new ArrayList<>();
+		for (ifNode arm : node.elif) {
+			RobotEvaluateNode armCond = condition(arm.condNode);
+			Boolean armValue = constant(armCond);
+			if (armValue != null && !armValue) {
+				continue;
+			}
+			ifNode elif = new ifNode();
+			elif.addCond(armCond);
+			elif.addNode(body(arm.node));
+			elif.setFlag(arm.flag);
+			arms.add(elif);
+			if (armValue != null) {
+				break;
+			}
+		}
+		if (value != null && arms.isEmpty()) {
+			return;
+		}
+		ifNode result = new ifNode();
+		result.addCond(cond);
+		result.addNode(body(node.node));
+		for (ifNode elif : arms) {
+			result.addElif(elif);
+		}
+		out.add(result);
+	}
+
+	/** A block, flattened */
+	private static RobotProgramNode body(RobotProgramNode node) {
+		List<RobotProgramNode> out = new ArrayList<>();
+		statement(node, out);
+		return block(out);
+	}
+
+	private static blockNode block(List<RobotProgramNode> nodes) {
+		blockNode block = new blockNode();
+		for (RobotProgramNode n : nodes) {
+			block.addNode(n);
+		}
+		return block;
+	}
+
+	// Conditions
+	// ----------
+
+	private static RobotEvaluateNode condition(RobotEvaluateNode node) {
+		if (!(node instanceof conditionNode)) {
+			return node;
+		}
+		conditionNode c = (conditionNode) node;
+		conditionNode result = new conditionNode();
+		if (c.relop != null) {
+			result.setRelop(c.relop);
+			result.setSen(expression(c.sen));
+			result.setNum(expression(c.num));
+			return result;
+		}
+		RobotEvaluateNode first = condition(c.conds.get(0));
+		if (c.cond == CONDS.not) {
+			// not(not(x)) is x
+			if (first instanceof conditionNode && ((conditionNode) first).cond == CONDS.not) {
+				return ((conditionNode) first).conds.get(0);
+			}
+			result.setCond(CONDS.not);
+			result.addCond(first);
+			return result;
+		}
+		RobotEvaluateNode second = condition(c.conds.get(1));
+		Boolean a = constant(first), b = constant(second);
+		// and(true, x) and or(false, x) are x, and(x, true) and or(x, false)
+		// are x too, as x is still evaluated
+		boolean identity = (c.cond == CONDS.and);
+		if (a != null && a == identity) {
+			return second;
+		}
+		if (b != null && b == identity) {
+			return first;
+		}
+		result.setCond(c.cond);
+		result.addCond(first);
+		result.addCond(second);
+		return result;
+	}
+
+	/**
+	 * The value of a condition if it can be decided without reading a sensor
+	 * the interpreter would have read, otherwise null.
+	 */
+	static Boolean constant(RobotEvaluateNode node) {
+		if (!(node instanceof conditionNode)) {
+			return null;
+		}
+		conditionNode c = (conditionNode) node;
+		if (c.relop != null) {
+			if (!(c.sen instanceof numberNode) || !(c.num instanceof numberNode)) {
+				return null;
+			}
+			int sen = ((numberNode) c.sen).number, num = ((numberNode) c.num).number;
+			switch (c.relop) {
+			case lt:
+				return sen < num;
+			case gt:
+				return sen > num;
+			default:
+				return sen == num;
+			}
+		}
+		Boolean a = constant(c.conds.get(0));
+		if (c.cond == CONDS.not) {
+			return (a == null) ? null : !a;
+		}
+		boolean shortCircuit = (c.cond == CONDS.or);
+		if (a != null) {
+			// and(false, x) and or(true, x) never evaluate x
+			return (a == shortCircuit) ? a : constant(c.conds.get(1));
+		}
+		Boolean b = constant(c.conds.get(1));
+		if (b != null && b == shortCircuit && pureCondition(c.conds.get(0))) {
+			return b;
+		}
+		return null;
+	}
+
+	/** Whether a condition can be skipped: no sensor reads and no division */
+	private static boolean pureCondition(RobotEvaluateNode node) {
+		if (!(node instanceof conditionNode)) {
+			return false;
+		}
+		conditionNode c = (conditionNode) node;
+		if (c.relop != null) {
+			return pureExpression(c.sen) && pureExpression(c.num);
+		}
+		for (RobotEvaluateNode n : c.conds) {
+			if (!pureCondition(n)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean pureExpression(RobotSensorNode node) {
+		if (node instanceof numberNode || node instanceof variableNode) {
+			return true;
+		}
+		if (node instanceof expressionNode) {
+			expressionNode e = (expressionNode) node;
+			if (e.operator == OP.div) {
+				return false;
+			}
+			for (RobotSensorNode n : e.nodes) {
+				if (!pureExpression(n)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	// Expressions
+	// -----------
+
+	private static RobotSensorNode expression(RobotSensorNode node) {
+		if (node instanceof expressionNode) {
+			expressionNode e = (expressionNode) node;
+			if (e.operator == null) {
+				return expression(e.nodes.get(0));
+			}
+			RobotSensorNode left = expression(e.nodes.get(0));
+			RobotSensorNode right = expression(e.nodes.get(1));
+			if (left instanceof numberNode && right instanceof numberNode) {
+				int a = ((numberNode) left).number, b = ((numberNode) right).number;
+				switch (e.operator) {
+				case add:
+					return number(a + b);
+				case sub:
+					return number(a - b);
+				case mul:
+					return number(a * b);
+				case div:
+					if (b != 0) {
+						return number(a / b);
+					}
+					break;
+				}
+			}
+			expressionNode result = new expressionNode();
+			result.setOp(e.operator);
+			result.addNode(left);
+			result.addNode(right);
+			return result;
+		} else if (node instanceof sensorNode) {
+			sensorNode s = (sensorNode) node;
+			sensorNode result = new sensorNode();
+			result.setSen(s.sen);
+			if (s.iter != null) {
+				RobotSensorNode iter = expression(s.iter);
+				// a constant 0, or anything over 13, reads the closest barrel
+				boolean closest = iter instanceof numberNode
+						&& (((numberNode) iter).number == 0 || ((numberNode) iter).number > 13);
+				result.setIter(closest ? null : iter);
+			}
+			return result;
+		}
+		return node;
+	}
+
+	private static numberNode number(int value) {
+		numberNode node = new numberNode();
+		node.setNumber(value);
+		return node;
+	}
+}
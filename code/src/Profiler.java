@@ -0,0 +1,447 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Profiles a robot program node by node. The source is parsed afresh with
+ * node positions kept, and a copy of the tree is made with every statement,
+ * condition and expression wrapped in a node that counts how often it runs,
+ * the nanoseconds spent in it (in total and outside its children), and for
+ * actions the fuel they cost. After the match, print gives the source with
+ * each line annotated by how hot it is.
+ *
+ * Only the copy is instrumented, so programs run any other way pay nothing.
+ * The copy runs as parsed, without the Optimiser, on the tree interpreter.
+ * Actions wait for the tick, so their time includes waiting for the other
+ * robots. A profiler's program is for one robot at a time.
+ *
+ * Usage: Profiler red.prog [blue.prog] [seed] [ticks]
+ */
+public class Profiler {
+
+	private static final int STATEMENT = 0, CONDITION = 1, EXPRESSION = 2;
+	/** How many of the hottest nodes print lists */
+	private static final int HOTTEST = 10;
+
+	private final String source;
+	private final Map<Object, Integer> positions;
+	private final List<Counter> counters = new ArrayList<>();
+	private final RobotProgramNode program;
+	private final Counter root;
+	/** Time spent in the children of the node running now, see Counter */
+	private long childNanos;
+
+	/** What one node of the parsed tree has done */
+	private static class Counter {
+		final Object node;
+		final int kind, offset;
+		long count, nanos, selfNanos, fuel;
+
+		Counter(Object node, int kind, int offset) {
+			this.node = node;
+			this.kind = kind;
+			this.offset = offset;
+		}
+	}
+
+	/**
+	 * Parses the source and instruments a copy of it.
+	 *
+	 * @throws ParserFailureException if the source does not parse
+	 */
+	public Profiler(CharSequence source) {
+		this.source = source.toString();
+		// not through the ProgramCache, the positions are for this tree
+		Lexer lexer = new Lexer(source);
+		lexer.keepPositions();
+		RobotProgramNode parsed = Parser.parseProgram(lexer);
+		positions = lexer.positions();
+		ProfiledStatement wrapped = (ProfiledStatement) statement(parsed);
+		root = wrapped.counter;
+		program = wrapped;
+	}
+
+	/** The instrumented program, to give to one robot */
+	public RobotProgramNode getProgram() {
+		return program;
+	}
+
+	private Counter counter(Object node, int kind) {
+		Integer offset = positions.get(node);
+		Counter c = new Counter(node, kind, (offset == null) ? 0 : offset);
+		counters.add(c);
+		return c;
+	}
+
+	// Instrumenting, a copy of each node with its children wrapped
+	// ---------------------------------------------------------------
+
+	private RobotProgramNode statement(RobotProgramNode n) {
+		RobotProgramNode copy;
+		if (n instanceof programNode) {
+			programNode node = new programNode();
+			for (RobotProgramNode s : ((programNode) n).nodes) {
+				node.addNode(statement(s));
+			}
+			node.setVariableCount(((programNode) n).variableCount);
+			copy = node;
+		} else if (n instanceof statementNode) {
+			statementNode node = new statementNode();
+			for (RobotProgramNode s : ((statementNode) n).nodes) {
+				node.addNode(statement(s));
+			}
+			copy = node;
+		} else if (n instanceof blockNode) {
+			blockNode node = new blockNode();
+			for (RobotProgramNode s : ((blockNode) n).nodes) {
+				node.addNode(statement(s));
+			}
+			copy = node;
+		} else if (n instanceof actNode) {
+			actNode act = (actNode) n;
+			actNode node = new actNode();
+			node.setAction(act.action);
+			node.setIterations((act.iter == null) ? null : expression(act.iter));
+			copy = node;
+		} else if (n instanceof assignmentNode) {
+			assignmentNode assign = (assignmentNode) n;
+			assignmentNode node = new assignmentNode();
+			node.setVariable(assign.variable);
+			node.setExpression(expression(assign.expression));
+			copy = node;
+		} else if (n instanceof loopNode) {
+			loopNode node = new loopNode();
+			node.addNode(statement(((loopNode) n).node));
+			copy = node;
+		} else if (n instanceof whileNode) {
+			whileNode w = (whileNode) n;
+			whileNode node = new whileNode();
+			node.addCond(condition(w.condNode));
+			node.addNode(statement(w.node));
+			copy = node;
+		} else if (n instanceof ifNode) {
+			ifNode i = (ifNode) n;
+			ifNode node = new ifNode();
+			node.addCond(condition(i.condNode));
+			node.addNode(statement(i.node));
+			// elif arms are never run as nodes, only their parts are
+			for (ifNode e : i.elif) {
+				ifNode elif = new ifNode();
+				elif.addCond(condition(e.condNode));
+				elif.addNode(statement(e.node));
+				elif.setFlag(e.flag);
+				node.addElif(elif);
+			}
+			if (i.elseNode != null) {
+				node.setElseNode(statement(i.elseNode));
+			}
+			copy = node;
+		} else {
+			throw new IllegalArgumentException("Unknown statement " + n.getClass().getName());
+		}
+		return new ProfiledStatement(this, counter(n, STATEMENT), copy, n instanceof actNode);
+	}
+
+	private RobotEvaluateNode condition(RobotEvaluateNode n) {
+		if (!(n instanceof conditionNode)) {
+			throw new IllegalArgumentException("Unknown condition " + n.getClass().getName());
+		}
+		conditionNode c = (conditionNode) n;
+		conditionNode node = new conditionNode();
+		if (c.relop != null) {
+			node.setRelop(c.relop);
+			node.setSen(expression(c.sen));
+			node.setNum(expression(c.num));
+		} else {
+			node.setCond(c.cond);
+			for (RobotEvaluateNode sub : c.conds) {
+				node.addCond(condition(sub));
+			}
+		}
+		return new ProfiledCondition(this, counter(n, CONDITION), node);
+	}
+
+	private RobotSensorNode expression(RobotSensorNode n) {
+		RobotSensorNode copy;
+		if (n instanceof expressionNode) {
+			expressionNode e = (expressionNode) n;
+			expressionNode node = new expressionNode();
+			node.setOp(e.operator);
+			for (RobotSensorNode sub : e.nodes) {
+				node.addNode(expression(sub));
+			}
+			copy = node;
+		} else if (n instanceof sensorNode) {
+			sensorNode s = (sensorNode) n;
+			sensorNode node = new sensorNode();
+			node.setSen(s.sen);
+			node.setIter((s.iter == null) ? null : expression(s.iter));
+			copy = node;
+		} else if (n instanceof numberNode || n instanceof variableNode) {
+			// leaves, nothing in them changes
+			copy = n;
+		} else {
+			throw new IllegalArgumentException("Unknown expression " + n.getClass().getName());
+		}
+		return new ProfiledExpression(this, counter(n, EXPRESSION), copy);
+	}
+
+	// Counting, called by the wrappers around each node
+	// ---------------------------------------------------------------
+
+	/** Starts timing a node, returning the time its parent's children had so far */
+	long enter() {
+		long outer = childNanos;
+		childNanos = 0;
+		return outer;
+	}
+
+	/** Finishes timing a node that took nanos, started when enter returned outer */
+	void exit(Counter c, long nanos, long outer) {
+		c.count++;
+		c.nanos += nanos;
+		c.selfNanos += nanos - childNanos;
+		childNanos = outer + nanos;
+	}
+
+	private static class ProfiledStatement implements RobotProgramNode {
+		final Profiler profiler;
+		final Counter counter;
+		final RobotProgramNode node;
+		final boolean action;
+
+		ProfiledStatement(Profiler profiler, Counter counter, RobotProgramNode node, boolean action) {
+			this.profiler = profiler;
+			this.counter = counter;
+			this.node = node;
+			this.action = action;
+		}
+
+		@Override
+		public void execute(Robot robot) {
+			int fuel = action ? robot.fuelLevel() : 0;
+			long outer = profiler.enter();
+			long start = System.nanoTime();
+			try {
+				node.execute(robot);
+			} finally {
+				profiler.exit(counter, System.nanoTime() - start, outer);
+				if (action) {
+					// refuelling counts as nothing spent
+					counter.fuel += Math.max(0, fuel - robot.fuelLevel());
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return node.toString();
+		}
+	}
+
+	private static class ProfiledCondition implements RobotEvaluateNode {
+		final Profiler profiler;
+		final Counter counter;
+		final RobotEvaluateNode node;
+
+		ProfiledCondition(Profiler profiler, Counter counter, RobotEvaluateNode node) {
+			this.profiler = profiler;
+			this.counter = counter;
+			this.node = node;
+		}
+
+		@Override
+		public boolean evaluate(Robot robot) {
+			long outer = profiler.enter();
+			long start = System.nanoTime();
+			try {
+				return node.evaluate(robot);
+			} finally {
+				profiler.exit(counter, System.nanoTime() - start, outer);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return node.toString();
+		}
+	}
+
+	private static class ProfiledExpression implements RobotSensorNode {
+		final Profiler profiler;
+		final Counter counter;
+		final RobotSensorNode node;
+
+		ProfiledExpression(Profiler profiler, Counter counter, RobotSensorNode node) {
+			this.profiler = profiler;
+			this.counter = counter;
+			this.node = node;
+		}
+
+		@Override
+		public int evaluate(Robot robot) {
+			long outer = profiler.enter();
+			long start = System.nanoTime();
+			try {
+				return node.evaluate(robot);
+			} finally {
+				profiler.exit(counter, System.nanoTime() - start, outer);
+			}
+		}
+
+		@Override
+		public String toString() {
+			return node.toString();
+		}
+	}
+
+	// Reporting
+	// ---------------------------------------------------------------
+
+	/**
+	 * Prints the source with each line annotated: how often its first node
+	 * ran, the fuel its actions cost, and the time spent in its nodes outside
+	 * their children, with a bar for its share. Then the hottest nodes by that
+	 * time, with their line and column.
+	 */
+	public void print(PrintStream out) {
+		String[] lines = source.split("\r?\n", -1);
+		int[] lineStarts = new int[lines.length];
+		for (int i = 1; i < lines.length; i++) {
+			lineStarts[i] = source.indexOf('\n', lineStarts[i - 1]) + 1;
+		}
+		long[] count = new long[lines.length], fuel = new long[lines.length], self = new long[lines.length];
+		boolean[] seen = new boolean[lines.length];
+		int[] first = new int[lines.length];
+		// counters are made children first, so of the nodes starting at the
+		// same place the outermost comes last
+		for (Counter c : counters) {
+			int line = line(lineStarts, c.offset);
+			if (!seen[line] || c.offset <= first[line]) {
+				first[line] = c.offset;
+				count[line] = c.count;
+			}
+			fuel[line] += c.fuel;
+			self[line] += c.selfNanos;
+			seen[line] = true;
+		}
+		long total = Math.max(1, root.nanos);
+
+		out.printf("%d node runs, %.3fms in the program, %d fuel spent by actions%n", sum(counters, 0), root.nanos / 1e6,
+				sum(counters, 1));
+		out.println("     runs   fuel  self ms      %             | line");
+		for (int i = 0; i < lines.length; i++) {
+			if (i == lines.length - 1 && lines[i].isEmpty()) {
+				break;
+			}
+			if (seen[i]) {
+				double share = 100.0 * self[i] / total;
+				out.printf("%9d %6d %8.3f %6.2f %-10s | %4d %s%n", count[i], fuel[i], self[i] / 1e6, share,
+						bar(share), i + 1, lines[i]);
+			} else {
+				out.printf("%9s %6s %8s %6s %-10s | %4d %s%n", "", "", "", "", "", i + 1, lines[i]);
+			}
+		}
+
+		List<Counter> hottest = new ArrayList<>(counters);
+		Collections.sort(hottest, new Comparator<Counter>() {
+			@Override
+			public int compare(Counter a, Counter b) {
+				return Long.compare(b.selfNanos, a.selfNanos);
+			}
+		});
+		out.println();
+		out.println("Hottest nodes, by time outside their children:");
+		out.println("  line:col       runs  self ms   avg ns  node");
+		for (Counter c : hottest.subList(0, Math.min(HOTTEST, hottest.size()))) {
+			if (c.count == 0) {
+				break;
+			}
+			int line = line(lineStarts, c.offset);
+			String at = (line + 1) + ":" + (c.offset - lineStarts[line] + 1);
+			String text = c.node.toString().replaceAll("\\s+", " ");
+			if (text.length() > 60) {
+				text = text.substring(0, 57) + "...";
+			}
+			out.printf("%10s %10d %8.3f %8d  %s %s%n", at, c.count, c.selfNanos / 1e6, c.selfNanos / c.count,
+					KINDS[c.kind], text);
+		}
+	}
+
+	private static final String[] KINDS = { "statement", "condition", "expression" };
+
+	private static int line(int[] lineStarts, int offset) {
+		int i = Arrays.binarySearch(lineStarts, offset);
+		return (i >= 0) ? i : -i - 2;
+	}
+
+	/** The total runs (what 0) or fuel (what 1) */
+	private static long sum(List<Counter> counters, int what) {
+		long sum = 0;
+		for (Counter c : counters) {
+			sum += (what == 0) ? c.count : c.fuel;
+		}
+		return sum;
+	}
+
+	private static String bar(double percent) {
+		char[] bar = new char[(int) Math.round(percent / 10)];
+		Arrays.fill(bar, '#');
+		return new String(bar);
+	}
+
+	/**
+	 * Plays a headless match with the programs profiled, robot 2 running the
+	 * default program if there is no blue one, and prints each profile.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length == 0) {
+			System.out.println("Usage: Profiler red.prog [blue.prog] [seed] [ticks]");
+			return;
+		}
+		List<String> names = new ArrayList<>();
+		List<Profiler> profilers = new ArrayList<>();
+		for (int i = 0; i < Math.min(2, args.length); i++) {
+			try {
+				profilers.add(new Profiler(new String(Files.readAllBytes(new File(args[i]).toPath()))));
+				names.add(args[i]);
+			} catch (ParserFailureException e) {
+				System.out.println("Parser error in " + args[i] + ":");
+				System.out.println(e.getMessage());
+				return;
+			}
+		}
+		long seed = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+		int ticks = (args.length > 3) ? Integer.parseInt(args[3]) : Tournament.TICK_LIMIT;
+
+		World world = new World(false, seed);
+		world.setTickLimit(ticks);
+		world.setTrace(new StateTrace(StateTrace.OFF));
+		world.setDebugSink(DebugLog.DROP);
+		for (int i = 0; i < profilers.size(); i++) {
+			world.getRobot(i + 1).setProgram(profilers.get(i).getProgram());
+		}
+		try {
+			world.start().join();
+		} catch (InterruptedException e) {
+			return;
+		} catch (ExecutionException e) {
+			// the profile up to the crash is still worth printing
+			e.getCause().printStackTrace();
+		}
+		System.out.println("Result " + world.getResult() + " after " + world.getTicks().getTick() + " ticks");
+		for (int i = 0; i < profilers.size(); i++) {
+			System.out.println();
+			System.out.println("== " + names.get(i) + " (robot " + (i + 1) + ")");
+			profilers.get(i).print(System.out);
+		}
+	}
+}
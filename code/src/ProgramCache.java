@@ -0,0 +1,73 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process wide cache of parsed robot programs, keyed by a 64 bit FNV-1a hash
+ * of the program source. Loading a source that has been parsed before costs a
+ * hash and a lookup instead of a parse. The source is kept alongside each tree
+ * so that a hash collision is detected and simply not cached.
+ *
+ * Only successful parses are cached, so a bad program reports its parser error
+ * every time it is loaded.
+ */
+public class ProgramCache {
+
+	private static final ConcurrentHashMap<Long, Entry> cache = new ConcurrentHashMap<>();
+
+	private static class Entry {
+		final String source;
+		final RobotProgramNode program;
+
+		Entry(String source, RobotProgramNode program) {
+			this.source = source;
+			this.program = program;
+		}
+	}
+
+	/**
+	 * Returns the cached program for this source, or parses it (throwing a
+	 * ParserFailureException on bad input) and caches the result.
+	 */
+	static RobotProgramNode get(CharSequence src) {
+		long hash = hash(src);
+		Entry e = cache.get(hash);
+		if (e != null && contentEquals(e.source, src)) {
+			return e.program;
+		}
+		RobotProgramNode prog = Parser.parseProgram(new Lexer(src));
+		if (e == null) {
+			cache.putIfAbsent(hash, new Entry(src.toString(), prog));
+		}
+		return prog;
+	}
+
+	/** Drops every cached program */
+	public static void clear() {
+		cache.clear();
+	}
+
+	public static int size() {
+		return cache.size();
+	}
+
+	/** 64 bit FNV-1a over the characters of the source */
+	static long hash(CharSequence src) {
+		long h = 0xcbf29ce484222325L;
+		for (int i = 0, n = src.length(); i < n; i++) {
+			h ^= src.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		return h;
+	}
+
+	private static boolean contentEquals(String a, CharSequence b) {
+		if (a.length() != b.length()) {
+			return false;
+		}
+		for (int i = 0, n = a.length(); i < n; i++) {
+			if (a.charAt(i) != b.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
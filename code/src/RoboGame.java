@@ -19,7 +19,7 @@ import javax.swing.JMenuItem;
 public class RoboGame extends JFrame {
 
 	private WorldComponent worldComp = new WorldComponent();
-	private File code1, code2;
+	private String code1, code2;
 
 	public static boolean debugDisplay = true;
 
@@ -43,12 +43,22 @@ public class RoboGame extends JFrame {
 
 		final JMenu loadMenu = new JMenu("Load Program");
 		final JMenu debugMenu = new JMenu("Debug ");
+		final JMenu interpreterMenu = new JMenu("Interpreter");
 		final JMenuItem load1 = new JMenuItem("Robot 1");
 		final JMenuItem load2 = new JMenuItem("Robot 2");
 		final JMenuItem start = new JMenuItem("Start");
 		final JMenuItem reset = new JMenuItem("Reset");
 		final JMenuItem debugOn = new JMenuItem("On");
 		final JMenuItem debugOff = new JMenuItem("Off");
+		final JMenuItem interpreterTree = new JMenuItem("Tree");
+		final JMenuItem interpreterVM = new JMenuItem("Bytecode VM");
+		final JMenuItem interpreterJIT = new JMenuItem("JIT");
+		final JMenuItem interpreterSpecialising = new JMenuItem("Self-specialising");
+		final JMenu speedMenu = new JMenu("Speed");
+		final JMenuItem speedNormal = new JMenuItem("1x");
+		final JMenuItem speed10 = new JMenuItem("10x");
+		final JMenuItem speed100 = new JMenuItem("100x");
+		final JMenuItem speedUnthrottled = new JMenuItem("Unthrottled");
 		JMenuItem quit = new JMenuItem("Quit");
 
 		menu.add(loadMenu);
@@ -59,6 +69,16 @@ public class RoboGame extends JFrame {
 		menu.add(debugMenu);
 		debugMenu.add(debugOn);
 		debugMenu.add(debugOff);
+		menu.add(interpreterMenu);
+		interpreterMenu.add(interpreterTree);
+		interpreterMenu.add(interpreterVM);
+		interpreterMenu.add(interpreterJIT);
+		interpreterMenu.add(interpreterSpecialising);
+		menu.add(speedMenu);
+		speedMenu.add(speedNormal);
+		speedMenu.add(speed10);
+		speedMenu.add(speed100);
+		speedMenu.add(speedUnthrottled);
 		menu.add(quit);
 		setJMenuBar(menu);
 
@@ -67,7 +87,7 @@ public class RoboGame extends JFrame {
 		load1.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				code1 = getCodeFile();
+				code1 = getCode();
 				if (code1 != null) {
 					worldComp.loadRobotProgram(1, code1);
 					worldComp.repaint();
@@ -78,7 +98,7 @@ public class RoboGame extends JFrame {
 		load2.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				code2 = getCodeFile();
+				code2 = getCode();
 				if (code2 != null) {
 					worldComp.loadRobotProgram(2, code2);
 					worldComp.repaint();
@@ -125,6 +145,58 @@ public class RoboGame extends JFrame {
 			}
 		});
 
+		// the interpreter applies to programs loaded after it is chosen
+		interpreterTree.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				worldComp.setInterpreter(World.INTERPRETER_TREE);
+			}
+		});
+		interpreterVM.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				worldComp.setInterpreter(World.INTERPRETER_VM);
+			}
+		});
+		interpreterJIT.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				worldComp.setInterpreter(World.INTERPRETER_JIT);
+			}
+		});
+		interpreterSpecialising.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				worldComp.setInterpreter(World.INTERPRETER_SPECIALISING);
+			}
+		});
+
+		// the speed can be changed while a match is running
+		speedNormal.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				worldComp.setSpeed(WorldComponent.SPEED_NORMAL);
+			}
+		});
+		speed10.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				worldComp.setSpeed(WorldComponent.SPEED_10X);
+			}
+		});
+		speed100.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				worldComp.setSpeed(WorldComponent.SPEED_100X);
+			}
+		});
+		speedUnthrottled.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				worldComp.setSpeed(WorldComponent.SPEED_UNTHROTTLED);
+			}
+		});
+
 		quit.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
@@ -155,6 +227,23 @@ public class RoboGame extends JFrame {
 		 */
 	}
 
+	/**
+	 * Asks for a program file and reads its source, so that a reset can reload
+	 * the program from memory rather than from disk.
+	 */
+	private String getCode() {
+		File file = getCodeFile();
+		if (file == null) {
+			return null;
+		}
+		try {
+			return new String(Files.readAllBytes(file.toPath()));
+		} catch (IOException e) {
+			System.out.println("Robot program source file not found");
+			return null;
+		}
+	}
+
 	public File getCodeFile() {
 		JFileChooser chooser = new JFileChooser(".");// System.getProperty("user.dir"));
 		int res = chooser.showOpenDialog(this);
@@ -168,6 +257,8 @@ public class RoboGame extends JFrame {
 	 * This is the entry point into the program.
 	 */
 	public static void main(String[] args) {
+		// the robots should not wait on the console while the game animates
+		DebugLog.setSink(new DebugLog.AsyncConsoleSink());
 		new RoboGame();
 	}
 }
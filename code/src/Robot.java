@@ -2,15 +2,15 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics2D;
 import java.awt.Point;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Arc2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.imageio.ImageIO;
 
@@ -27,7 +27,7 @@ public class Robot {
 	 * Move forward one step.
 	 */
 	public void move() {
-		debug("move");
+		debug(DebugLog.LEVEL_ACTIONS, DebugLog.ACTION, ACTION_MOVE, 0);
 		currentAction = ACTION_MOVE;
 		if (dir == DIRECTION.NORTH)
 			targetY -= 1;
@@ -39,16 +39,8 @@ public class Robot {
 			targetX += 1;
 		targetX = Math.max(0, targetX);
 		targetY = Math.max(0, targetY);
-		targetX = Math.min(11, targetX);
-		targetY = Math.min(11, targetY);
-		Robot other = world.getOtherRobot(this);
-		if (other != null) {
-			if (other.targetX == targetX && other.targetY == targetY) {
-				// not allowed to move
-				targetX = x;
-				targetY = y;
-			}
-		}
+		targetX = Math.min(world.getSize() - 1, targetX);
+		targetY = Math.min(world.getSize() - 1, targetY);
 		processFuelAndBlock();
 		readState();
 	}
@@ -57,7 +49,7 @@ public class Robot {
 	 * Turn 90 degrees to the left
 	 */
 	public void turnLeft() {
-		debug("turnL");
+		debug(DebugLog.LEVEL_ACTIONS, DebugLog.ACTION, ACTION_TURN_LEFT, 0);
 		currentAction = ACTION_TURN_LEFT;
 		switch (dir) {
 		case NORTH:
@@ -81,7 +73,7 @@ public class Robot {
 	 * Turn 90 degrees to the right
 	 */
 	public void turnRight() {
-		debug("turnR");
+		debug(DebugLog.LEVEL_ACTIONS, DebugLog.ACTION, ACTION_TURN_RIGHT, 0);
 		currentAction = ACTION_TURN_RIGHT;
 		switch (dir) {
 		case NORTH:
@@ -105,7 +97,7 @@ public class Robot {
 	 * Turn 180 degrees.
 	 */
 	public void turnAround() {
-		debug("turnAround");
+		debug(DebugLog.LEVEL_ACTIONS, DebugLog.ACTION, ACTION_TURN_AROUND, 0);
 		currentAction = ACTION_TURN_AROUND;
 		switch (dir) {
 		case NORTH:
@@ -130,8 +122,9 @@ public class Robot {
 	 * cannot steal fuel, but this robot will use up fuel faster.
 	 */
 	public void setShield(boolean shield) {
-		debug("shield " + (shield ? "on" : "off"));
+		debug(DebugLog.LEVEL_ACTIONS, DebugLog.SHIELD, shield ? 1 : 0, 0);
 		this.shield = shield;
+		lastAction = 0;
 		readState();
 	}
 
@@ -139,7 +132,7 @@ public class Robot {
 	 * Take fuel barrel or siphon fuel from other robot.
 	 */
 	public void takeFuel() {
-		debug("takeFuel");
+		debug(DebugLog.LEVEL_ACTIONS, DebugLog.ACTION, ACTION_TAKE_FUEL, 0);
 		currentAction = ACTION_TAKE_FUEL;
 		processFuelAndBlock();
 		readState();
@@ -149,7 +142,7 @@ public class Robot {
 	 * Do nothing and wait.
 	 */
 	public void idleWait() {
-		debug("wait");
+		debug(DebugLog.LEVEL_ACTIONS, DebugLog.ACTION, ACTION_WAIT, 0);
 		currentAction = ACTION_WAIT;
 		processFuelAndBlock();
 		readState();
@@ -167,17 +160,23 @@ public class Robot {
 	public int getDistanceToWall() {
 		if (cancelled)
 			throw new RobotInterruptedException();
+		int val = 0;
 		switch (dir) {
 		case NORTH:
-			return y;
+			val = y;
+			break;
 		case SOUTH:
-			return 11 - y;
+			val = world.getSize() - 1 - y;
+			break;
 		case WEST:
-			return x;
+			val = x;
+			break;
 		case EAST:
-			return 11 - x;
+			val = world.getSize() - 1 - x;
+			break;
 		}
-		return 0;
+		sensed("wallDist", 0, val);
+		return val;
 	}
 
 	/**
@@ -191,10 +190,12 @@ public class Robot {
 		if (cancelled)
 			throw new RobotInterruptedException();
 		if (otherRobotPos == null) {
-			debug("oppLR=INFINTY");
+			debug(DebugLog.LEVEL_ALL, DebugLog.OPP_LR, INFINITY, 0);
+			sensed("oppLR", 0, INFINITY);
 			return INFINITY;
 		} else {
-			debug("oppLR=" + otherRobotPos.x);
+			debug(DebugLog.LEVEL_ALL, DebugLog.OPP_LR, otherRobotPos.x, 0);
+			sensed("oppLR", 0, otherRobotPos.x);
 			return otherRobotPos.x;
 		}
 	}
@@ -210,10 +211,12 @@ public class Robot {
 		if (cancelled)
 			throw new RobotInterruptedException();
 		if (otherRobotPos == null) {
-			debug("oppFB=INFINTY");
+			debug(DebugLog.LEVEL_ALL, DebugLog.OPP_FB, INFINITY, 0);
+			sensed("oppFB", 0, INFINITY);
 			return INFINITY;
 		} else {
-			debug("oppFB=" + otherRobotPos.y);
+			debug(DebugLog.LEVEL_ALL, DebugLog.OPP_FB, otherRobotPos.y, 0);
+			sensed("oppFB", 0, otherRobotPos.y);
 			return otherRobotPos.y;
 		}
 	}
@@ -224,8 +227,9 @@ public class Robot {
 	public int numBarrels() {
 		if (cancelled)
 			throw new RobotInterruptedException();
-		debug("numBarrels = " + barrels.size());
-		return barrels.size();
+		debug(DebugLog.LEVEL_ALL, DebugLog.NUM_BARRELS, barrelCount, 0);
+		sensed("numBarrels", 0, barrelCount);
+		return barrelCount;
 	}
 
 	/**
@@ -264,8 +268,10 @@ public class Robot {
 	public int getBarrelLR(int n) {
 		if (cancelled)
 			throw new RobotInterruptedException();
-		int val = (n >= barrels.size()) ? INFINITY : barrels.get(n).x;
-		debug(((n == 0) ? "" : (n + "th")) + "closestBarrelLR = " + ((val == INFINITY) ? "INFINITY" : "" + val));
+		Point barrel = barrel(n);
+		int val = (barrel == null) ? INFINITY : barrel.x;
+		debug(DebugLog.LEVEL_ALL, DebugLog.BARREL_LR, n, val);
+		sensed("barrelLR", n, val);
 		return val;
 	}
 
@@ -279,8 +285,10 @@ public class Robot {
 	public int getBarrelFB(int n) {
 		if (cancelled)
 			throw new RobotInterruptedException();
-		int val = (n >= barrels.size()) ? INFINITY : barrels.get(n).y;
-		debug(((n == 0) ? "" : (n + "th")) + "closestBarrelFB = " + ((val == INFINITY) ? "INFINITY" : "" + val));
+		Point barrel = barrel(n);
+		int val = (barrel == null) ? INFINITY : barrel.y;
+		debug(DebugLog.LEVEL_ALL, DebugLog.BARREL_FB, n, val);
+		sensed("barrelFB", n, val);
 		return val;
 	}
 
@@ -292,17 +300,57 @@ public class Robot {
 	public int getFuel() {
 		if (cancelled)
 			throw new RobotInterruptedException();
-		debug("fuel=" + fuel);
+		debug(DebugLog.LEVEL_ALL, DebugLog.FUEL, fuel, 0);
+		sensed("fuelLeft", 0, fuel);
 		return fuel;
 	}
 
+	// Program Variables
+	// -----------------
+
+	/**
+	 * The variable frame of the program this robot is running, indexed by the
+	 * slots the parser gives each variable.
+	 */
+	public int[] getVariables() {
+		return variables;
+	}
+
+	/**
+	 * Replaces the variable frame, called when a program starts running.
+	 */
+	public void setVariables(int[] variables) {
+		this.variables = variables;
+	}
+
+	/**
+	 * Stops the program if this robot has been cancelled. Checked by the
+	 * interpreter on every loop iteration, so that a program which never acts
+	 * or reads a sensor still ends on reset.
+	 *
+	 * In a world that is not paced, a program that goes SPIN_LIMIT iterations
+	 * without acting is stopped too. Nothing can change while it spins, as the
+	 * tick waits for it, so it would only hold up its match until a timeout.
+	 * The same goes for a robot running on its own under a tick limit, as in
+	 * the printer's batch mode, where it would otherwise print sensor reads
+	 * for ever.
+	 */
+	public void checkCancelled() {
+		if (cancelled)
+			throw new RobotInterruptedException();
+		if (++spins > SPIN_LIMIT && (!world.isPaced() || (noWait && world.getTickLimit() > 0))) {
+			halt();
+			throw new RobotInterruptedException();
+		}
+	}
+
 	/**
 	 * @return boolean stating whether the shield is currently on.
 	 */
 	public boolean isShieldOn() {
 		if (cancelled)
 			throw new RobotInterruptedException();
-		debug(shield ? "shield is on" : "shield is off");
+		debug(DebugLog.LEVEL_ALL, DebugLog.SHIELD_IS_ON, shield ? 1 : 0, 0);
 		return shield;
 	}
 
@@ -316,6 +364,9 @@ public class Robot {
 	    ACTION_TURN_AROUND = 4, ACTION_TAKE_FUEL = 5, ACTION_WAIT = 6,
 	    INFINITY = Integer.MAX_VALUE;  
 
+	/** Loop iterations without an action after which an unpaced robot is stopped */
+	public static final int SPIN_LIMIT = 1 << 16;
+
 	private static final int
 	    FUEL_IDLE = 3, FUEL_MOVE = 6, FUEL_TURN = 5, FUEL_SHIELD = 15;
 
@@ -324,17 +375,35 @@ public class Robot {
         private World world;
 	private Point otherRobotPos;
 	private List<Point> barrels = new ArrayList<Point>();
+	private int barrelCount;
 	private RobotProgramNode program;
+	private int[] variables = new int[0];
 
-	private boolean shield, dead, finished, cancelled;
+	private boolean shield, dead, finished;
+	private volatile boolean cancelled;
 	private int fuel = 100, targetFuel;
 	private int x, y, targetX, targetY;
         private DIRECTION dir, targetDir;
     //	private int x, y, dir, targetX, targetY, targetDir;
-	private int currentAction;
+	private volatile int currentAction;
+	/** The last action taken, for the trace, 0 if the state changed otherwise */
+	private int lastAction;
+	private int id;
+	private volatile int debugLevel = DebugLog.LEVEL_ALL;
 	private String colour;
-	private BufferedImage robotImage1, robotImage2, shieldImage;
+	/** Read by the first draw, so robots that are never drawn never read them */
+	private boolean spritesRead = false;
+	private RotatedSprite robotSprite1, robotSprite2;
+	private BufferedImage shieldImage;
+	/** Reused by draw, which each robot only has called from one thread */
+	private final Arc2D.Double fuelArc = new Arc2D.Double();
 	private boolean noWait = false;
+	/** Loop iterations since the last action, see checkCancelled */
+	private int spins;
+	/** Actions taken by a robot running on its own, see processFuelAndBlock */
+	private int actions;
+	/** Sensor reads, counted to sample them for GameEvents */
+	private int sensorReads;
 
 	public Robot(World world, int x, int y, String colour, boolean noWait) {
 		this.world = world;
@@ -344,27 +413,88 @@ public class Robot {
 		this.noWait = noWait;
 		targetX = x;
 		targetY = y;
-		dir = (y < World.SIZE / 2) ? DIRECTION.SOUTH : DIRECTION.NORTH;
+		dir = (y < world.getSize() / 2) ? DIRECTION.SOUTH : DIRECTION.NORTH;
 		targetDir = dir;
 		targetFuel = fuel;
-		try {
-			robotImage1 = ImageIO.read(new File("assets/robot_" + colour + "_1.png"));
-			robotImage2 = ImageIO.read(new File("assets/robot_" + colour + "_2.png"));
-			shieldImage = ImageIO.read(new File("assets/shield.png"));
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
 	}
 
-	private ArrayList<String> history = new ArrayList<>();
+	/** Sprites are read once and shared by every robot of every world */
+	private static final Map<String, BufferedImage> images = new ConcurrentHashMap<>();
+	private static final Map<String, RotatedSprite> sprites = new ConcurrentHashMap<>();
+	/** Paths that could not be read, tried and reported only once */
+	private static final Set<String> unreadable = ConcurrentHashMap.newKeySet();
+
+	private static final BasicStroke FUEL_STROKE = new BasicStroke(3);
+
+	/** A robot sprite turned every way, null if it could not be read */
+	private static RotatedSprite sprite(String path) {
+		RotatedSprite sprite = sprites.get(path);
+		if (sprite == null) {
+			BufferedImage image = image(path);
+			if (image != null) {
+				sprite = new RotatedSprite(image);
+				sprites.putIfAbsent(path, sprite);
+			}
+		}
+		return sprite;
+	}
+
+	private static BufferedImage image(String path) {
+		BufferedImage image = images.get(path);
+		if (image == null && !unreadable.contains(path)) {
+			String problem;
+			try {
+				image = ImageIO.read(new File(path));
+				problem = (image == null) ? "not an image" : null;
+			} catch (IOException e) {
+				problem = e.getMessage();
+			}
+			if (image != null) {
+				images.put(path, image);
+			} else if (unreadable.add(path)) {
+				System.err.println("Could not read " + path + ": " + problem);
+			}
+		}
+		return image;
+	}
 
 	/**
-	 * Encodes the state of the robot, used for automarking.
+	 * Encodes the state of the robot, used for automarking. Goes to the
+	 * world's StateTrace, which prints it by default.
 	 */
 	public void readState() {
-		String state = "x=" + x + " y=" + y + " dir=" + dir + " fuel=" + fuel + " shield=" + shield;
-		history.add(state);
-		System.out.println(state);
+		world.getTrace().record(world.getTicks().getTick(), id, x, y, dir.ordinal(), fuel, shield, lastAction);
+	}
+
+	/** Called by the World when it adds this robot */
+	void setId(int id) {
+		this.id = id;
+	}
+
+	/** Writes x, y, dir, fuel and shield into a world snapshot */
+	void save(int[] state, int at) {
+		state[at] = x;
+		state[at + 1] = y;
+		state[at + 2] = dir.ordinal();
+		state[at + 3] = fuel;
+		state[at + 4] = shield ? 1 : 0;
+	}
+
+	/**
+	 * Goes back to a state written by save, as a robot that has not started
+	 * its program. The world senses for it afterwards.
+	 */
+	void restore(int[] state, int at) {
+		x = targetX = state[at];
+		y = targetY = state[at + 1];
+		dir = targetDir = DIRECTION.values()[state[at + 2]];
+		fuel = targetFuel = state[at + 3];
+		shield = state[at + 4] != 0;
+		dead = false;
+		finished = false;
+		cancelled = false;
+		currentAction = 0;
+		lastAction = 0;
 	}
 
 	/**
@@ -417,6 +547,12 @@ public class Robot {
 	 * @param time
 	 */
 	public void draw(Graphics2D g2d, double time) {
+		if (!spritesRead) {
+			robotSprite1 = sprite("assets/robot_" + colour + "_1.png");
+			robotSprite2 = sprite("assets/robot_" + colour + "_2.png");
+			shieldImage = image("assets/shield.png");
+			spritesRead = true;
+		}
 		double x = this.x * (1 - time) + targetX * time;
 		double y = this.y * (1 - time) + targetY * time;
 		x = x * WorldComponent.GRID_SIZE + WorldComponent.GRID_SIZE / 2d;
@@ -435,21 +571,18 @@ public class Robot {
 			break;
 		}
 
-		AffineTransform trans = new AffineTransform();
-		trans.translate(x, y);
-		trans.rotate(angle);
-		trans.translate(-robotImage1.getWidth() / 2d, -robotImage1.getHeight() / 2d);
-
+		RotatedSprite sprite;
 		if (((int) (time * 10)) % 2 == 0 && currentAction < ACTION_TAKE_FUEL && currentAction > 0) {
-			g2d.drawImage(robotImage2, trans, null);
+			sprite = robotSprite2;
 		} else {
-			g2d.drawImage(robotImage1, trans, null);
+			sprite = robotSprite1;
+		}
+		if (sprite != null) {
+			sprite.draw(g2d, x, y, angle);
 		}
 
-		if (shield) {
-			trans = new AffineTransform();
-			trans.translate(x - 25, y - 25);
-			g2d.drawImage(shieldImage, trans, null);
+		if (shield && shieldImage != null) {
+			g2d.drawImage(shieldImage, (int) Math.round(x) - 25, (int) Math.round(y) - 25, null);
 		}
 
 		double fuelCurrent = targetFuel * time + fuel * (1 - time);
@@ -457,16 +590,61 @@ public class Robot {
 			dead = true;
 
 		// draw fuel indicator
-		Arc2D fuelArc = new Arc2D.Double(x - 10, y - 10, 20, 20, -90, 360d * fuelCurrent / 100d, Arc2D.OPEN);
-		g2d.setStroke(new BasicStroke(3));
+		fuelArc.setArc(x - 10, y - 10, 20, 20, -90, 360d * fuelCurrent / 100d, Arc2D.OPEN);
+		g2d.setStroke(FUEL_STROKE);
 		g2d.setColor(Color.GREEN);
 		g2d.draw(fuelArc);
 	}
 
+	/** The fuel left, for the profiler; unlike getFuel this is not a sensor read */
+	int fuelLevel() {
+		return fuel;
+	}
+
 	public boolean isDead() {
 		return dead;
 	}
 
+	/**
+	 * Whether this robot has run out of fuel, for the world rather than the
+	 * program (unlike getFuel this is not a sensor).
+	 */
+	public boolean outOfFuel() {
+		return fuel <= 0;
+	}
+
+	/**
+	 * Stops this robot's program at its next action or sensor read, without
+	 * touching its state. Called by the world when a headless match ends.
+	 */
+	public void halt() {
+		cancelled = true;
+	}
+
+	private static int dirX(DIRECTION d) {
+		return (d == DIRECTION.WEST) ? -1 : (d == DIRECTION.EAST) ? 1 : 0;
+	}
+
+	private static int dirY(DIRECTION d) {
+		return (d == DIRECTION.NORTH) ? -1 : (d == DIRECTION.SOUTH) ? 1 : 0;
+	}
+
+	int getX() {
+		return x;
+	}
+
+	int getY() {
+		return y;
+	}
+
+	int getTargetX() {
+		return targetX;
+	}
+
+	int getTargetY() {
+		return targetY;
+	}
+
 	private Point getOtherRobotPosition() {
 		Robot other = world.getOtherRobot(this);
 		return (other != null) ? toRelative(new Point(other.x, other.y)) : null;
@@ -502,9 +680,39 @@ public class Robot {
 		return 0;
 	}
 
+	/**
+	 * Applies the chosen action to the world. Called by the World for each
+	 * robot in turn once they have all chosen, so the outcome never depends on
+	 * which robot thread got there first.
+	 */
+	void resolveAction() {
+		if (currentAction == 0) {
+			// finished, updatePending charges it for waiting
+			return;
+		}
+		refuseMove();
+		processFuel();
+	}
+
+	/**
+	 * Stays put if the world will not let this robot move, see
+	 * World.refuseMove.
+	 *
+	 * @return whether a move was refused just now
+	 */
+	boolean refuseMove() {
+		if (currentAction == ACTION_MOVE && (targetX != x || targetY != y)
+				&& world.refuseMove(x, y, targetX, targetY)) {
+			targetX = x;
+			targetY = y;
+			return true;
+		}
+		return false;
+	}
+
 	private void processFuel() {
-		// use fuel
-		targetFuel = fuel;
+		// use fuel, targetFuel already equals fuel unless the other robot has
+		// siphoned some this tick
 		switch (currentAction) {
 		case ACTION_MOVE:
 			targetFuel -= FUEL_MOVE;
@@ -519,22 +727,19 @@ public class Robot {
 			targetFuel -= FUEL_TURN;
 			break;
 		case ACTION_TAKE_FUEL:
-			if (world.getAvailableFuel().contains(new Point(x, y))) {
-				world.getAvailableFuel().remove(new Point(x, y));
+			if (world.takeBarrel(x, y)) {
 				targetFuel = 100;
 				return;
 			} else {// try to siphon fuel
-				Robot other = world.getOtherRobot(this);
+				// only from the robot directly in front
+				Robot other = world.robotAt(x + dirX(dir), y + dirY(dir));
 				if (other != null && !other.shield) {
-					Point otherP = getOtherRobotPosition(); // relative position
-					if (otherP.x == 0 && otherP.y == 1) {
-						System.out.println("Taking fuel");
-						int takeFuel = Math.min(25, other.targetFuel / 2);
-						takeFuel = Math.min(other.targetFuel, takeFuel);
-						targetFuel = Math.min(100, targetFuel + takeFuel);
-						other.targetFuel -= takeFuel;
-						return;
-					}
+					world.getTrace().println("Taking fuel");
+					int takeFuel = Math.min(25, other.targetFuel / 2);
+					takeFuel = Math.min(other.targetFuel, takeFuel);
+					targetFuel = Math.min(100, targetFuel + takeFuel);
+					other.targetFuel -= takeFuel;
+					return;
 				}
 			}
 			targetFuel -= FUEL_IDLE;
@@ -550,17 +755,53 @@ public class Robot {
 	private void processFuelAndBlock() {
 		if (cancelled)
 			throw new RobotInterruptedException();
-		// use fuel
-		processFuel();
+		GameEvents.ActionEvent event = new GameEvents.ActionEvent();
+		event.begin();
+		int fuelBefore = fuel, action = currentAction;
+		spins = 0;
+		lastAction = currentAction;
 		if (this.noWait) {
+			// with no ticks, each action counts as one towards the tick limit
+			int limit = world.getTickLimit();
+			if (limit > 0 && ++actions > limit) {
+				halt();
+				throw new RobotInterruptedException();
+			}
+			world.indexRobots();
+			resolveAction();
 			updatePending();
 		} else {
-			while (currentAction != 0) {
-				try {
-					Thread.sleep(10);
-				} catch (InterruptedException e) {
-				}
-			}
+			// wait in lockstep for the world to resolve and apply this action
+			world.getTicks().submit();
+			if (cancelled)
+				throw new RobotInterruptedException();
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			event.match = world.getMatchId();
+			event.robot = id;
+			event.tick = world.getTicks().getTick();
+			event.action = GameEvents.actionName(action);
+			event.fuelBefore = fuelBefore;
+			event.fuelAfter = fuel;
+			event.commit();
+		}
+	}
+
+	/** Makes a GameEvents sensor event for one read in every SENSOR_SAMPLE */
+	private void sensed(String sensor, int argument, int value) {
+		if (++sensorReads % GameEvents.SENSOR_SAMPLE != 0) {
+			return;
+		}
+		GameEvents.SensorEvent event = new GameEvents.SensorEvent();
+		if (event.shouldCommit()) {
+			event.match = world.getMatchId();
+			event.robot = id;
+			event.tick = world.getTicks().getTick();
+			event.sensor = sensor;
+			event.argument = argument;
+			event.value = value;
+			event.commit();
 		}
 	}
 
@@ -568,6 +809,19 @@ public class Robot {
 	 * Called by the "World" only.
 	 */
 	public void updatePending() {
+		applyPending();
+		if (noWait) {
+			// nothing else updates the index for a robot running on its own
+			world.indexRobots();
+		}
+		sense();
+	}
+
+	/**
+	 * Completes the resolved action. The World moves every robot before any of
+	 * them senses, see sense.
+	 */
+	void applyPending() {
 		// reset turn
 		x = targetX;
 		y = targetY;
@@ -577,22 +831,34 @@ public class Robot {
 			currentAction = ACTION_WAIT;
 			processFuel();
 		}
+	}
+
+	/** Takes the sensor readings the program will see until the next action */
+	void sense() {
 		otherRobotPos = getOtherRobotPosition();
-		barrels = new ArrayList<Point>(world.getAvailableFuel());
-		for (int i = 0; i < barrels.size(); i++) {
-			Point p = toRelative(barrels.get(i));
-			barrels.set(i, p);
-		}
-		Collections.sort(barrels, new Comparator<Point>() {
+		// the barrels themselves are only looked up if the program asks
+		barrelCount = world.getBarrelCount();
+		barrels.clear();
+		currentAction = 0;
+	}
 
-			@Override
-			public int compare(Point p1, Point p2) {
-				int d1 = Math.abs(p1.x) + Math.abs(p1.y);
-				int d2 = Math.abs(p2.x) + Math.abs(p2.y);
-				return d1 - d2;
+	/**
+	 * The nth closest barrel relative to this robot, or null if there are not
+	 * that many. Barrels are fetched from the world's index as far as they are
+	 * needed, which is safe until the next action as the world only changes
+	 * while every robot is waiting.
+	 */
+	private Point barrel(int n) {
+		if (n >= barrelCount) {
+			return null;
+		}
+		if (n >= barrels.size()) {
+			List<Point> nearest = world.nearestBarrels(x, y, Math.max(n + 1, 2 * barrels.size()));
+			for (int i = barrels.size(); i < nearest.size(); i++) {
+				barrels.add(toRelative(nearest.get(i)));
 			}
-		});
-		currentAction = 0;
+		}
+		return barrels.get(n);
 	}
 
 	public String toString() {
@@ -600,15 +866,26 @@ public class Robot {
 	}
 
 	/**
-	 * print a message about the action to System.out if debugging is currently
-	 * turned on.
+	 * Reports a debug event if debugging is currently turned on and this
+	 * robot's level includes it. Nothing is formatted here.
 	 */
-	private void debug(String action) {
-		if (RoboGame.debugDisplay && program != null) {
-			System.out.println(colour + " robot: " + action);
+	private void debug(int level, int event, int a, int b) {
+		if (RoboGame.debugDisplay && level <= debugLevel && program != null) {
+			DebugLog.Sink own = world.getDebugSink();
+			if (own != DebugLog.DROP) {
+				DebugLog.event(own, colour, event, a, b);
+			}
 		}
 	}
 
+	/**
+	 * How much of this robot's debugging is reported, one of the
+	 * DebugLog.LEVEL_ constants. Everything by default.
+	 */
+	public void setDebugLevel(int debugLevel) {
+		this.debugLevel = debugLevel;
+	}
+
 	/**
 	 * What the robot will do if it has no valid controller
 	 */
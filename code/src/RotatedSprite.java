@@ -0,0 +1,43 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * A sprite rendered up front at ROTATIONS evenly spaced angles, so that
+ * drawing it turned is a plain image copy rather than a transform at paint
+ * time. Angles are rounded to the nearest rotation, 5 degrees apart.
+ */
+class RotatedSprite {
+
+	static final int ROTATIONS = 72;
+
+	private final BufferedImage[] rotated = new BufferedImage[ROTATIONS];
+	/** Half the side of each rotated image, which fits the sprite at any angle */
+	private final int half;
+
+	RotatedSprite(BufferedImage sprite) {
+		int w = sprite.getWidth(), h = sprite.getHeight();
+		half = (int) Math.ceil(Math.sqrt(w * w + h * h) / 2);
+		for (int i = 0; i < ROTATIONS; i++) {
+			BufferedImage image = new BufferedImage(2 * half, 2 * half, BufferedImage.TYPE_INT_ARGB_PRE);
+			Graphics2D g = image.createGraphics();
+			// quality only costs anything here, once
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+			g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+			g.translate(half, half);
+			g.rotate(2 * Math.PI * i / ROTATIONS);
+			g.drawImage(sprite, -w / 2, -h / 2, null);
+			g.dispose();
+			rotated[i] = image;
+		}
+	}
+
+	/** Draws the sprite centred on (x, y), turned clockwise by angle radians */
+	void draw(Graphics2D g, double x, double y, double angle) {
+		int i = (int) Math.round(angle / (2 * Math.PI) * ROTATIONS) % ROTATIONS;
+		if (i < 0) {
+			i += ROTATIONS;
+		}
+		g.drawImage(rotated[i], (int) Math.round(x) - half, (int) Math.round(y) - half, null);
+	}
+}
@@ -0,0 +1,3 @@
+enum SENSOR {
+	fuelLeft, oppLR, oppFB, numBarrels, barrelLR, barrelFB, wallDist
+}
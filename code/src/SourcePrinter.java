@@ -0,0 +1,157 @@
+/**
+ * Prints a program tree as robot program source that parses back to the same
+ * program, one statement per line, indented with tabs. Unlike toString, which
+ * shows the shape of the tree, this is for saving programs that were built
+ * rather than parsed, such as those bred by Evolution.
+ */
+public class SourcePrinter {
+
+	private final StringBuilder out = new StringBuilder();
+
+	private SourcePrinter() {
+	}
+
+	public static String print(RobotProgramNode prog) {
+		SourcePrinter p = new SourcePrinter();
+		if (prog instanceof programNode) {
+			for (RobotProgramNode n : ((programNode) prog).nodes) {
+				p.statement(n, 0);
+			}
+		} else {
+			p.statement(prog, 0);
+		}
+		return p.out.toString();
+	}
+
+	// Statements
+	// ----------
+
+	private void statement(RobotProgramNode n, int depth) {
+		if (n instanceof statementNode) {
+			for (RobotProgramNode s : ((statementNode) n).nodes) {
+				statement(s, depth);
+			}
+			return;
+		}
+		if (n instanceof blockNode) {
+			// a block inside a block, its statements are just as well inline
+			for (RobotProgramNode s : ((blockNode) n).nodes) {
+				statement(s, depth);
+			}
+			return;
+		}
+		indent(depth);
+		if (n instanceof actNode) {
+			actNode act = (actNode) n;
+			out.append(act.action.name());
+			if (act.iter != null) {
+				out.append('(');
+				expression(act.iter);
+				out.append(')');
+			}
+			out.append(";\n");
+		} else if (n instanceof assignmentNode) {
+			assignmentNode assign = (assignmentNode) n;
+			out.append(assign.variable.getName()).append(" = ");
+			expression(assign.expression);
+			out.append(";\n");
+		} else if (n instanceof loopNode) {
+			out.append("loop");
+			block(((loopNode) n).node, depth);
+			out.append('\n');
+		} else if (n instanceof whileNode) {
+			whileNode w = (whileNode) n;
+			out.append("while(");
+			condition(w.condNode);
+			out.append(')');
+			block(w.node, depth);
+			out.append('\n');
+		} else if (n instanceof ifNode) {
+			ifNode i = (ifNode) n;
+			out.append("if(");
+			condition(i.condNode);
+			out.append(')');
+			block(i.node, depth);
+			for (ifNode elif : i.elif) {
+				out.append(" elif(");
+				condition(elif.condNode);
+				out.append(')');
+				block(elif.node, depth);
+			}
+			if (i.elseNode != null) {
+				out.append(" else");
+				block(i.elseNode, depth);
+			}
+			out.append('\n');
+		} else {
+			throw new IllegalArgumentException("Cannot print " + n.getClass().getName());
+		}
+	}
+
+	/** Braces around a block, the closing one left at the end of the line */
+	private void block(RobotProgramNode n, int depth) {
+		out.append("{\n");
+		statement(n, depth + 1);
+		indent(depth);
+		out.append('}');
+	}
+
+	private void indent(int depth) {
+		for (int i = 0; i < depth; i++) {
+			out.append('\t');
+		}
+	}
+
+	// Conditions and expressions
+	// --------------------------
+
+	private void condition(RobotEvaluateNode n) {
+		if (!(n instanceof conditionNode)) {
+			throw new IllegalArgumentException("Cannot print " + n.getClass().getName());
+		}
+		conditionNode c = (conditionNode) n;
+		if (c.relop != null) {
+			out.append(c.relop.name()).append('(');
+			expression(c.sen);
+			out.append(", ");
+			expression(c.num);
+		} else {
+			out.append(c.cond.name()).append('(');
+			condition(c.conds.get(0));
+			if (c.cond != CONDS.not) {
+				out.append(", ");
+				condition(c.conds.get(1));
+			}
+		}
+		out.append(')');
+	}
+
+	private void expression(RobotSensorNode n) {
+		if (n instanceof expressionNode) {
+			expressionNode e = (expressionNode) n;
+			if (e.operator == null) {
+				expression(e.nodes.get(0));
+			} else {
+				out.append(e.operator.name()).append('(');
+				expression(e.nodes.get(0));
+				out.append(", ");
+				expression(e.nodes.get(1));
+				out.append(')');
+			}
+		} else if (n instanceof sensorNode) {
+			sensorNode s = (sensorNode) n;
+			out.append(s.sen.name());
+			if (s.iter != null) {
+				out.append('(');
+				expression(s.iter);
+				out.append(')');
+			}
+		} else if (n instanceof numberNode) {
+			out.append(((numberNode) n).number);
+		} else if (n instanceof variableNode) {
+			out.append(((variableNode) n).getName());
+		} else {
+			throw new IllegalArgumentException("Cannot print " + n.getClass().getName());
+		}
+	}
+}
@@ -0,0 +1,821 @@
+import java.util.List;
+
+/**
+ * A node rewriting interpreter, in the spirit of Truffle. A program starts out
+ * as uninitialized nodes wrapping the parsed tree. The first time one runs it
+ * builds the specialised node for its piece of the tree (an AddNode, a
+ * FuelLeftSensorNode, an LtConstNode...), replaces itself with it in its
+ * parent and executes it. After that every call site only ever sees one node
+ * class, so the JIT can inline the whole program, and branches that never run
+ * are never specialised.
+ *
+ * All nodes sit behind the RobotProgramNode, RobotSensorNode and
+ * RobotEvaluateNode interfaces. Each program gets its own tree, as the
+ * rewriting mutates it.
+ */
+public class SpecialisingInterpreter {
+
+	private SpecialisingInterpreter() {
+	}
+
+	public static RobotProgramNode create(RobotProgramNode prog) {
+		SpecialisedProgram root = new SpecialisedProgram(prog);
+		root.body = new UninitializedStatement(prog, root, 0);
+		return root;
+	}
+
+	// Specialisation, run the first time an uninitialized node executes
+	// ----------------------------------------------------------------------
+
+	static RobotProgramNode statement(RobotProgramNode node) {
+		if (node instanceof programNode) {
+			return sequence(((programNode) node).nodes.toArray(new RobotProgramNode[0]));
+		} else if (node instanceof statementNode) {
+			return sequence(((statementNode) node).nodes.toArray(new RobotProgramNode[0]));
+		} else if (node instanceof blockNode) {
+			return sequence(((blockNode) node).nodes.toArray(new RobotProgramNode[0]));
+		} else if (node instanceof actNode) {
+			return act((actNode) node);
+		} else if (node instanceof loopNode) {
+			ForeverNode n = new ForeverNode();
+			n.body = new UninitializedStatement(((loopNode) node).node, n, 0);
+			return n;
+		} else if (node instanceof whileNode) {
+			whileNode w = (whileNode) node;
+			WhileLoopNode n = new WhileLoopNode();
+			n.cond = new UninitializedCondition(w.condNode, n, 0);
+			n.body = new UninitializedStatement(w.node, n, 1);
+			return n;
+		} else if (node instanceof ifNode) {
+			ifNode i = (ifNode) node;
+			IfThenNode n = new IfThenNode();
+			n.cond = new UninitializedCondition(i.condNode, n, 0);
+			n.then = new UninitializedStatement(i.node, n, 1);
+			if (!i.elif.isEmpty()) {
+				n.otherwise = arms(i.elif, 0);
+			} else if (i.elseNode != null) {
+				n.otherwise = new UninitializedStatement(i.elseNode, n, 2);
+			}
+			return n;
+		} else if (node instanceof assignmentNode) {
+			assignmentNode a = (assignmentNode) node;
+			AssignSlotNode n = new AssignSlotNode(a.variable.getSlot());
+			n.value = new UninitializedExpression(a.expression, n, 0);
+			return n;
+		}
+		return node;
+	}
+
+	/** The elif arms of an if from the i'th on, see ElifArmNode */
+	private static RobotProgramNode arms(List<ifNode> arms, int i) {
+		ifNode arm = arms.get(i);
+		ElifArmNode n = new ElifArmNode(arm.flag);
+		n.cond = new UninitializedCondition(arm.condNode, n, 0);
+		n.then = new UninitializedStatement(arm.node, n, 1);
+		n.rest = (i + 1 < arms.size()) ? arms(arms, i + 1) : null;
+		return n;
+	}
+
+	private static RobotProgramNode sequence(RobotProgramNode[] nodes) {
+		if (nodes.length == 1) {
+			return statement(nodes[0]);
+		}
+		SequenceNode n = new SequenceNode(nodes.length);
+		for (int i = 0; i < nodes.length; i++) {
+			n.children[i] = new UninitializedStatement(nodes[i], n, i);
+		}
+		return n;
+	}
+
+	private static RobotProgramNode act(actNode node) {
+		if (node.iter != null) {
+			if (node.action == ACTION.move) {
+				MoveNNode n = new MoveNNode();
+				n.count = new UninitializedExpression(node.iter, n, 0);
+				return n;
+			} else if (node.action == ACTION.wait) {
+				WaitNNode n = new WaitNNode();
+				n.count = new UninitializedExpression(node.iter, n, 0);
+				return n;
+			}
+			return node;
+		}
+		switch (node.action) {
+		case move:
+			return new MoveNode();
+		case turnL:
+			return new TurnLeftNode();
+		case turnR:
+			return new TurnRightNode();
+		case takeFuel:
+			return new TakeFuelNode();
+		case wait:
+			return new WaitNode();
+		case turnAround:
+			return new TurnAroundNode();
+		case shieldOn:
+			return new ShieldOnNode();
+		default:
+			return new ShieldOffNode();
+		}
+	}
+
+	static RobotSensorNode expression(RobotSensorNode node) {
+		if (node instanceof expressionNode) {
+			expressionNode e = (expressionNode) node;
+			if (e.operator == null) {
+				return expression(e.nodes.get(0));
+			}
+			BinaryNode n;
+			switch (e.operator) {
+			case add:
+				n = new AddNode();
+				break;
+			case sub:
+				n = new SubNode();
+				break;
+			case mul:
+				n = new MulNode();
+				break;
+			default:
+				n = new DivNode();
+				break;
+			}
+			n.left = new UninitializedExpression(e.nodes.get(0), n, 0);
+			n.right = new UninitializedExpression(e.nodes.get(1), n, 1);
+			return n;
+		} else if (node instanceof numberNode) {
+			return new ConstNode(((numberNode) node).number);
+		} else if (node instanceof variableNode) {
+			return new VarNode(((variableNode) node).getSlot());
+		} else if (node instanceof sensorNode) {
+			return sensor((sensorNode) node);
+		}
+		return node;
+	}
+
+	private static RobotSensorNode sensor(sensorNode node) {
+		switch (node.sen) {
+		case fuelLeft:
+			return new FuelLeftSensorNode();
+		case oppLR:
+			return new OppLRSensorNode();
+		case oppFB:
+			return new OppFBSensorNode();
+		case numBarrels:
+			return new NumBarrelsSensorNode();
+		case wallDist:
+			return new WallDistSensorNode();
+		case barrelLR:
+			if (node.iter == null) {
+				return new ClosestBarrelLRSensorNode();
+			} else {
+				BarrelLRSensorNode n = new BarrelLRSensorNode();
+				n.n = new UninitializedExpression(node.iter, n, 0);
+				return n;
+			}
+		default:
+			if (node.iter == null) {
+				return new ClosestBarrelFBSensorNode();
+			} else {
+				BarrelFBSensorNode n = new BarrelFBSensorNode();
+				n.n = new UninitializedExpression(node.iter, n, 0);
+				return n;
+			}
+		}
+	}
+
+	static RobotEvaluateNode condition(RobotEvaluateNode node) {
+		if (!(node instanceof conditionNode)) {
+			return node;
+		}
+		conditionNode c = (conditionNode) node;
+		if (c.relop != null) {
+			if (c.num instanceof numberNode) {
+				int value = ((numberNode) c.num).number;
+				ConstCompareNode n;
+				switch (c.relop) {
+				case lt:
+					n = new LtConstNode(value);
+					break;
+				case gt:
+					n = new GtConstNode(value);
+					break;
+				default:
+					n = new EqConstNode(value);
+					break;
+				}
+				n.sen = new UninitializedExpression(c.sen, n, 0);
+				return n;
+			}
+			CompareNode n;
+			switch (c.relop) {
+			case lt:
+				n = new LtNode();
+				break;
+			case gt:
+				n = new GtNode();
+				break;
+			default:
+				n = new EqNode();
+				break;
+			}
+			n.sen = new UninitializedExpression(c.sen, n, 0);
+			n.num = new UninitializedExpression(c.num, n, 1);
+			return n;
+		}
+		LogicNode n;
+		switch (c.cond) {
+		case not:
+			n = new NotNode();
+			break;
+		case and:
+			n = new AndNode();
+			break;
+		default:
+			n = new OrNode();
+			break;
+		}
+		n.left = new UninitializedCondition(c.conds.get(0), n, 0);
+		if (c.cond != CONDS.not) {
+			n.right = new UninitializedCondition(c.conds.get(1), n, 1);
+		}
+		return n;
+	}
+}
+
+/** A node whose children can be replaced by their specialised form */
+interface SpecialisingParent {
+	void replace(int child, Object node);
+}
+
+// Uninitialized nodes
+// -------------------
+
+class UninitializedStatement implements RobotProgramNode {
+	final RobotProgramNode original;
+	final SpecialisingParent parent;
+	final int child;
+
+	UninitializedStatement(RobotProgramNode original, SpecialisingParent parent, int child) {
+		this.original = original;
+		this.parent = parent;
+		this.child = child;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		RobotProgramNode node = SpecialisingInterpreter.statement(original);
+		parent.replace(child, node);
+		node.execute(robot);
+	}
+}
+
+class UninitializedExpression implements RobotSensorNode {
+	final RobotSensorNode original;
+	final SpecialisingParent parent;
+	final int child;
+
+	UninitializedExpression(RobotSensorNode original, SpecialisingParent parent, int child) {
+		this.original = original;
+		this.parent = parent;
+		this.child = child;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		RobotSensorNode node = SpecialisingInterpreter.expression(original);
+		parent.replace(child, node);
+		return node.evaluate(robot);
+	}
+}
+
+class UninitializedCondition implements RobotEvaluateNode {
+	final RobotEvaluateNode original;
+	final SpecialisingParent parent;
+	final int child;
+
+	UninitializedCondition(RobotEvaluateNode original, SpecialisingParent parent, int child) {
+		this.original = original;
+		this.parent = parent;
+		this.child = child;
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+		RobotEvaluateNode node = SpecialisingInterpreter.condition(original);
+		parent.replace(child, node);
+		return node.evaluate(robot);
+	}
+}
+
+// Statements
+// ----------
+
+class SpecialisedProgram implements RobotProgramNode, SpecialisingParent {
+	final RobotProgramNode source;
+	final int variableCount;
+	RobotProgramNode body;
+
+	SpecialisedProgram(RobotProgramNode source) {
+		this.source = source;
+		this.variableCount = (source instanceof programNode) ? ((programNode) source).variableCount : 0;
+	}
+
+	public void replace(int child, Object node) {
+		body = (RobotProgramNode) node;
+	}
+
+	public String toString() {
+		return source.toString();
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		robot.setVariables(new int[variableCount]);
+		body.execute(robot);
+	}
+}
+
+class SequenceNode implements RobotProgramNode, SpecialisingParent {
+	final RobotProgramNode[] children;
+
+	SequenceNode(int size) {
+		children = new RobotProgramNode[size];
+	}
+
+	public void replace(int child, Object node) {
+		children[child] = (RobotProgramNode) node;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		for (RobotProgramNode n : children) {
+			n.execute(robot);
+		}
+	}
+}
+
+class ForeverNode implements RobotProgramNode, SpecialisingParent {
+	RobotProgramNode body;
+
+	public void replace(int child, Object node) {
+		body = (RobotProgramNode) node;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		while (true) {
+			robot.checkCancelled();
+			body.execute(robot);
+		}
+	}
+}
+
+class WhileLoopNode implements RobotProgramNode, SpecialisingParent {
+	RobotEvaluateNode cond;
+	RobotProgramNode body;
+
+	public void replace(int child, Object node) {
+		if (child == 0) {
+			cond = (RobotEvaluateNode) node;
+		} else {
+			body = (RobotProgramNode) node;
+		}
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		while (cond.evaluate(robot)) {
+			robot.checkCancelled();
+			body.execute(robot);
+		}
+	}
+}
+
+class IfThenNode implements RobotProgramNode, SpecialisingParent {
+	RobotEvaluateNode cond;
+	RobotProgramNode then, otherwise;
+
+	public void replace(int child, Object node) {
+		if (child == 0) {
+			cond = (RobotEvaluateNode) node;
+		} else if (child == 1) {
+			then = (RobotProgramNode) node;
+		} else {
+			otherwise = (RobotProgramNode) node;
+		}
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		if (cond.evaluate(robot)) {
+			then.execute(robot);
+		} else if (otherwise != null) {
+			otherwise.execute(robot);
+		}
+	}
+}
+
+/**
+ * An elif arm and the arms after it, run as ifNode runs them: once the arm
+ * has matched, the rest are never tried again.
+ */
+class ElifArmNode implements RobotProgramNode, SpecialisingParent {
+	final int flag;
+	RobotEvaluateNode cond;
+	RobotProgramNode then, rest;
+
+	ElifArmNode(int flag) {
+		this.flag = flag;
+	}
+
+	public void replace(int child, Object node) {
+		if (child == 0) {
+			cond = (RobotEvaluateNode) node;
+		} else {
+			then = (RobotProgramNode) node;
+		}
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		if (cond.evaluate(robot)) {
+			robot.getVariables()[flag] = 1;
+			then.execute(robot);
+		}
+		if (robot.getVariables()[flag] == 0 && rest != null) {
+			rest.execute(robot);
+		}
+	}
+}
+
+class AssignSlotNode implements RobotProgramNode, SpecialisingParent {
+	final int slot;
+	RobotSensorNode value;
+
+	AssignSlotNode(int slot) {
+		this.slot = slot;
+	}
+
+	public void replace(int child, Object node) {
+		value = (RobotSensorNode) node;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		robot.getVariables()[slot] = value.evaluate(robot);
+	}
+}
+
+class MoveNode implements RobotProgramNode {
+	@Override
+	public void execute(Robot robot) {
+		robot.move();
+	}
+}
+
+class MoveNNode implements RobotProgramNode, SpecialisingParent {
+	RobotSensorNode count;
+
+	public void replace(int child, Object node) {
+		count = (RobotSensorNode) node;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		for (int i = count.evaluate(robot); i > 0; i--) {
+			robot.move();
+		}
+	}
+}
+
+class WaitNode implements RobotProgramNode {
+	@Override
+	public void execute(Robot robot) {
+		robot.idleWait();
+	}
+}
+
+class WaitNNode implements RobotProgramNode, SpecialisingParent {
+	RobotSensorNode count;
+
+	public void replace(int child, Object node) {
+		count = (RobotSensorNode) node;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		for (int i = count.evaluate(robot); i > 0; i--) {
+			robot.idleWait();
+		}
+	}
+}
+
+class TurnLeftNode implements RobotProgramNode {
+	@Override
+	public void execute(Robot robot) {
+		robot.turnLeft();
+	}
+}
+
+class TurnRightNode implements RobotProgramNode {
+	@Override
+	public void execute(Robot robot) {
+		robot.turnRight();
+	}
+}
+
+class TurnAroundNode implements RobotProgramNode {
+	@Override
+	public void execute(Robot robot) {
+		robot.turnAround();
+	}
+}
+
+class TakeFuelNode implements RobotProgramNode {
+	@Override
+	public void execute(Robot robot) {
+		robot.takeFuel();
+	}
+}
+
+class ShieldOnNode implements RobotProgramNode {
+	@Override
+	public void execute(Robot robot) {
+		robot.setShield(true);
+	}
+}
+
+class ShieldOffNode implements RobotProgramNode {
+	@Override
+	public void execute(Robot robot) {
+		robot.setShield(false);
+	}
+}
+
+// Expressions
+// -----------
+
+class ConstNode implements RobotSensorNode {
+	final int value;
+
+	ConstNode(int value) {
+		this.value = value;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		return value;
+	}
+}
+
+class VarNode implements RobotSensorNode {
+	final int slot;
+
+	VarNode(int slot) {
+		this.slot = slot;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.getVariables()[slot];
+	}
+}
+
+abstract class BinaryNode implements RobotSensorNode, SpecialisingParent {
+	RobotSensorNode left, right;
+
+	public void replace(int child, Object node) {
+		if (child == 0) {
+			left = (RobotSensorNode) node;
+		} else {
+			right = (RobotSensorNode) node;
+		}
+	}
+}
+
+class AddNode extends BinaryNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return left.evaluate(robot) + right.evaluate(robot);
+	}
+}
+
+class SubNode extends BinaryNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return left.evaluate(robot) - right.evaluate(robot);
+	}
+}
+
+class MulNode extends BinaryNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return left.evaluate(robot) * right.evaluate(robot);
+	}
+}
+
+class DivNode extends BinaryNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return left.evaluate(robot) / right.evaluate(robot);
+	}
+}
+
+class FuelLeftSensorNode implements RobotSensorNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.getFuel();
+	}
+}
+
+class OppLRSensorNode implements RobotSensorNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.getOpponentLR();
+	}
+}
+
+class OppFBSensorNode implements RobotSensorNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.getOpponentFB();
+	}
+}
+
+class NumBarrelsSensorNode implements RobotSensorNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.numBarrels();
+	}
+}
+
+class WallDistSensorNode implements RobotSensorNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.getDistanceToWall();
+	}
+}
+
+class ClosestBarrelLRSensorNode implements RobotSensorNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.getBarrelLR(0);
+	}
+}
+
+class ClosestBarrelFBSensorNode implements RobotSensorNode {
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.getBarrelFB(0);
+	}
+}
+
+class BarrelLRSensorNode implements RobotSensorNode, SpecialisingParent {
+	RobotSensorNode n;
+
+	public void replace(int child, Object node) {
+		n = (RobotSensorNode) node;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		int i = n.evaluate(robot);
+		return robot.getBarrelLR((i > 13) ? 0 : i);
+	}
+}
+
+class BarrelFBSensorNode implements RobotSensorNode, SpecialisingParent {
+	RobotSensorNode n;
+
+	public void replace(int child, Object node) {
+		n = (RobotSensorNode) node;
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		int i = n.evaluate(robot);
+		return robot.getBarrelFB((i > 13) ? 0 : i);
+	}
+}
+
+// Conditions
+// ----------
+
+/** A comparison, evaluating the right hand side first like conditionNode */
+abstract class CompareNode implements RobotEvaluateNode, SpecialisingParent {
+	RobotSensorNode sen, num;
+
+	public void replace(int child, Object node) {
+		if (child == 0) {
+			sen = (RobotSensorNode) node;
+		} else {
+			num = (RobotSensorNode) node;
+		}
+	}
+}
+
+class LtNode extends CompareNode {
+	@Override
+	public boolean evaluate(Robot robot) {
+		int n = num.evaluate(robot);
+		return sen.evaluate(robot) < n;
+	}
+}
+
+class GtNode extends CompareNode {
+	@Override
+	public boolean evaluate(Robot robot) {
+		int n = num.evaluate(robot);
+		return sen.evaluate(robot) > n;
+	}
+}
+
+class EqNode extends CompareNode {
+	@Override
+	public boolean evaluate(Robot robot) {
+		int n = num.evaluate(robot);
+		return sen.evaluate(robot) == n;
+	}
+}
+
+/** A comparison against a constant */
+abstract class ConstCompareNode implements RobotEvaluateNode, SpecialisingParent {
+	final int num;
+	RobotSensorNode sen;
+
+	ConstCompareNode(int num) {
+		this.num = num;
+	}
+
+	public void replace(int child, Object node) {
+		sen = (RobotSensorNode) node;
+	}
+}
+
+class LtConstNode extends ConstCompareNode {
+	LtConstNode(int num) {
+		super(num);
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+		return sen.evaluate(robot) < num;
+	}
+}
+
+class GtConstNode extends ConstCompareNode {
+	GtConstNode(int num) {
+		super(num);
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+		return sen.evaluate(robot) > num;
+	}
+}
+
+class EqConstNode extends ConstCompareNode {
+	EqConstNode(int num) {
+		super(num);
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+		return sen.evaluate(robot) == num;
+	}
+}
+
+abstract class LogicNode implements RobotEvaluateNode, SpecialisingParent {
+	RobotEvaluateNode left, right;
+
+	public void replace(int child, Object node) {
+		if (child == 0) {
+			left = (RobotEvaluateNode) node;
+		} else {
+			right = (RobotEvaluateNode) node;
+		}
+	}
+}
+
+class AndNode extends LogicNode {
+	@Override
+	public boolean evaluate(Robot robot) {
+		return left.evaluate(robot) && right.evaluate(robot);
+	}
+}
+
+class OrNode extends LogicNode {
+	@Override
+	public boolean evaluate(Robot robot) {
+		return left.evaluate(robot) || right.evaluate(robot);
+	}
+}
+
+class NotNode extends LogicNode {
+	@Override
+	public boolean evaluate(Robot robot) {
+		return !left.evaluate(robot);
+	}
+}
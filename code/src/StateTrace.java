@@ -0,0 +1,288 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where a world's robots record their state after every action, in one of
+ * four modes:
+ * <ul>
+ * <li>OFF records nothing.</li>
+ * <li>TEXT prints each state to System.out, or a stream of its own, straight
+ * away, in the format the autograder reads.</li>
+ * <li>MEMORY keeps the most recent records in a ring buffer.</li>
+ * <li>FILE writes records to a binary file from a background thread, which
+ * drains the ring buffer; robots only wait if it falls a whole buffer
+ * behind.</li>
+ * </ul>
+ *
+ * A record is RECORD_INTS ints: tick, robot id, x, y, fuel, and the
+ * direction, shield and action packed as dir << 16 | shield << 8 | action.
+ * The file is those ints, big-endian, one record after another. Running this
+ * class on a trace file prints it as text.
+ */
+public class StateTrace {
+
+	public static final int OFF = 0, MEMORY = 1, FILE = 2, TEXT = 3;
+
+	public static final int RECORD_INTS = 6;
+	/** Records kept by default, about 1.5MB */
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final String[] DIRECTIONS = { "NORTH", "WEST", "SOUTH", "EAST" };
+
+	private final int mode;
+	private final int capacity;
+	private final int[] ring;
+	/** Where a TEXT trace prints, null for System.out */
+	private final PrintStream text;
+	/** Records ever added, and ever removed by the writer */
+	private long head = 0, tail = 0;
+
+	private FileChannel out;
+	private Thread writer;
+	private boolean closed = false;
+	private IOException failure;
+
+	/** A trace that is OFF, TEXT or MEMORY with the default capacity */
+	public StateTrace(int mode) {
+		this(mode, DEFAULT_CAPACITY);
+	}
+
+	public StateTrace(int mode, int capacity) {
+		if (mode == FILE) {
+			throw new IllegalArgumentException("File traces need a file");
+		}
+		this.mode = mode;
+		this.capacity = capacity;
+		ring = (mode == MEMORY) ? new int[capacity * RECORD_INTS] : null;
+		text = null;
+	}
+
+	/** A TEXT trace that prints to out rather than System.out */
+	public StateTrace(PrintStream out) {
+		this.mode = TEXT;
+		this.capacity = 0;
+		ring = null;
+		text = out;
+	}
+
+	/** A FILE trace, call close once the match is over */
+	public StateTrace(File file, int capacity) throws IOException {
+		this.mode = FILE;
+		this.capacity = capacity;
+		ring = new int[capacity * RECORD_INTS];
+		text = null;
+		out = new FileOutputStream(file).getChannel();
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "trace-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public StateTrace(File file) throws IOException {
+		this(file, DEFAULT_CAPACITY);
+	}
+
+	public int getMode() {
+		return mode;
+	}
+
+	/** Whether states are being printed, so other output can go with them */
+	public boolean isText() {
+		return mode == TEXT;
+	}
+
+	/** Prints a line of other output in with the states, if this trace prints them */
+	public void println(String line) {
+		if (mode == TEXT) {
+			((text != null) ? text : System.out).println(line);
+		}
+	}
+
+	/**
+	 * Records one state. Text is printed by the calling thread so that it
+	 * stays in order with anything else printed.
+	 */
+	public void record(int tick, int robot, int x, int y, int dir, int fuel, boolean shield, int action) {
+		switch (mode) {
+		case OFF:
+			return;
+		case TEXT:
+			((text != null) ? text : System.out).println(text(x, y, dir, fuel, shield));
+			return;
+		}
+		synchronized (this) {
+			if (mode == FILE) {
+				while (head - tail == capacity && !closed) {
+					// the writer has fallen a whole buffer behind
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return;
+					}
+				}
+				if (closed) {
+					return;
+				}
+			}
+			int i = (int) (head % capacity) * RECORD_INTS;
+			ring[i] = tick;
+			ring[i + 1] = robot;
+			ring[i + 2] = x;
+			ring[i + 3] = y;
+			ring[i + 4] = fuel;
+			ring[i + 5] = dir << 16 | (shield ? 1 : 0) << 8 | action;
+			head++;
+			if (mode == FILE) {
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * The records held by a MEMORY trace, oldest first. Once more than the
+	 * capacity have been recorded, only the latest are left.
+	 */
+	public synchronized int[] records() {
+		if (mode != MEMORY) {
+			return new int[0];
+		}
+		int n = (int) Math.min(head, capacity);
+		int[] records = new int[n * RECORD_INTS];
+		for (int r = 0; r < n; r++) {
+			int i = (int) ((head - n + r) % capacity) * RECORD_INTS;
+			System.arraycopy(ring, i, records, r * RECORD_INTS, RECORD_INTS);
+		}
+		return records;
+	}
+
+	/** The records held by a MEMORY trace for one robot, as text */
+	public List<String> lines(int robot) {
+		int[] records = records();
+		List<String> lines = new ArrayList<>();
+		for (int i = 0; i < records.length; i += RECORD_INTS) {
+			if (records[i + 1] == robot) {
+				lines.add(text(records, i));
+			}
+		}
+		return lines;
+	}
+
+	/** The autograder's text for a state */
+	public static String text(int x, int y, int dir, int fuel, boolean shield) {
+		return "x=" + x + " y=" + y + " dir=" + DIRECTIONS[dir] + " fuel=" + fuel + " shield=" + shield;
+	}
+
+	/** The autograder's text for the record starting at records[i] */
+	public static String text(int[] records, int i) {
+		int flags = records[i + 5];
+		return text(records[i + 2], records[i + 3], flags >>> 16, records[i + 4], ((flags >> 8) & 0xff) != 0);
+	}
+
+	/**
+	 * Waits for a FILE trace to write everything recorded so far, then stops
+	 * its writer and closes the file.
+	 */
+	public void close() throws IOException {
+		if (mode != FILE) {
+			return;
+		}
+		synchronized (this) {
+			closed = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		out.close();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/** The writer thread, copies records out of the ring a batch at a time */
+	private void drain() {
+		ByteBuffer buf = ByteBuffer.allocate(capacity * RECORD_INTS * 4);
+		while (true) {
+			long from, to;
+			synchronized (this) {
+				while (head == tail && !closed) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+				if (head == tail) {
+					return;
+				}
+				from = tail;
+				to = head;
+				buf.clear();
+				for (long r = from; r < to; r++) {
+					int i = (int) (r % capacity) * RECORD_INTS;
+					for (int j = 0; j < RECORD_INTS; j++) {
+						buf.putInt(ring[i + j]);
+					}
+				}
+				// the records are copied, the robots can reuse their space
+				tail = to;
+				notifyAll();
+			}
+			buf.flip();
+			try {
+				while (buf.hasRemaining()) {
+					out.write(buf);
+				}
+			} catch (IOException e) {
+				synchronized (this) {
+					failure = e;
+					closed = true;
+					notifyAll();
+				}
+				return;
+			}
+		}
+	}
+
+	/** Reads every record of a trace file */
+	public static int[] read(File file) throws IOException {
+		int[] records = new int[(int) (file.length() / 4)];
+		try (InputStream in = new FileInputStream(file)) {
+			DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+			for (int i = 0; i < records.length; i++) {
+				records[i] = data.readInt();
+			}
+		} catch (EOFException e) {
+			throw new IOException("Truncated trace file " + file);
+		}
+		return records;
+	}
+
+	/** Prints trace files as text, with the tick and robot of each state */
+	public static void main(String[] args) throws IOException {
+		for (String arg : args) {
+			int[] records = read(new File(arg));
+			for (int i = 0; i + RECORD_INTS <= records.length; i += RECORD_INTS) {
+				System.out.println(records[i] + " " + records[i + 1] + " " + text(records, i));
+			}
+		}
+	}
+}
@@ -0,0 +1,4 @@
+enum TOKEN {
+	ACT, SEN, OP, RELOP, COND, LOOP, IF, ELIF, ELSE, WHILE, VAR, NUM, ASSIGN,
+	OPENPAREN, CLOSEPAREN, OPENBRACE, CLOSEBRACE, COMMA, SEMI, OTHER, EOF
+}
@@ -0,0 +1,102 @@
+import java.util.concurrent.Phaser;
+
+/**
+ * Runs the world in lockstep with its robots. Every robot thread is a party of
+ * a Phaser; after each action a robot arrives and waits, and the world is
+ * updated the instant the last live robot arrives, in that robot's thread.
+ * Robots that finish their program deregister, so they no longer hold up the
+ * others.
+ *
+ * A paced engine has one more party, the clock (the GUI's animation timer),
+ * so the world only advances when both the robots have all acted and the
+ * clock has ticked. An unpaced engine advances as fast as the robots act.
+ */
+public class TickEngine {
+
+	private final Phaser phaser;
+	private final boolean paced;
+	private volatile int tick = 0;
+	private int clockPhase = -1;
+
+	public TickEngine(World world, boolean paced) {
+		this(world, paced, 0);
+	}
+
+	/** An engine carrying on from the given tick, for a restored world */
+	public TickEngine(final World world, boolean paced, int startTick) {
+		this.paced = paced;
+		tick = startTick;
+		phaser = new Phaser(paced ? 1 : 0) {
+			@Override
+			protected boolean onAdvance(int phase, int registeredParties) {
+				tick++;
+				world.updateWorld();
+				return false;
+			}
+		};
+	}
+
+	/** Adds a robot, call before its thread starts */
+	public void register() {
+		phaser.register();
+	}
+
+	/** Removes a robot whose program has ended */
+	public void deregister() {
+		if (!phaser.isTerminated()) {
+			phaser.arriveAndDeregister();
+		}
+	}
+
+	/**
+	 * Called by a robot once it has chosen its action, returns once the world
+	 * has been updated (or the engine stopped).
+	 */
+	public void submit() {
+		phaser.arriveAndAwaitAdvance();
+	}
+
+	/**
+	 * Called by the clock of a paced engine to allow the next tick. Never
+	 * blocks, and does nothing if the previous tick is still waiting on the
+	 * robots.
+	 */
+	public void clock() {
+		if (paced) {
+			arrive();
+		}
+	}
+
+	/**
+	 * Clocks the next tick of a paced engine and waits until the world has
+	 * been updated, for a clock that keeps its own time rather than polling.
+	 *
+	 * @return false once the engine has been stopped
+	 */
+	public boolean clockAndWait() throws InterruptedException {
+		if (!paced) {
+			return !phaser.isTerminated();
+		}
+		return phaser.awaitAdvanceInterruptibly(arrive()) >= 0;
+	}
+
+	/** The clock arrives once per phase, returns the phase it arrived at */
+	private synchronized int arrive() {
+		int phase = phaser.getPhase();
+		if (phase >= 0 && phase != clockPhase) {
+			clockPhase = phase;
+			phaser.arrive();
+		}
+		return phase;
+	}
+
+	/** Releases every waiting robot, the engine cannot be used afterwards */
+	public void stop() {
+		phaser.forceTermination();
+	}
+
+	/** The number of ticks the world has advanced */
+	public int getTick() {
+		return tick;
+	}
+}
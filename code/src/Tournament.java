@@ -0,0 +1,300 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays every robot program in a directory against every other, headless.
+ * Each pairing is played with both colours, several games each, and every
+ * match gets its own unpaced World so matches can run side by side on all
+ * cores. Game n of every pairing uses the same world seed, derived from the
+ * tournament seed, so a tournament can be replayed exactly.
+ *
+ * Usage: Tournament dir [games] [threads] [tree|vm|jit|spec] [results.csv] [seed]
+ */
+public class Tournament {
+
+	/** Matches still going after this many ticks are drawn */
+	public static final int TICK_LIMIT = 2000;
+	/**
+	 * Matches still running after this long are reported as stuck, but never
+	 * cut short, so results do not depend on how busy the machine is. The
+	 * tick limit and Robot.SPIN_LIMIT end every match well before it.
+	 */
+	static final long MATCH_WARNING = 60000;
+
+	public static final int POINTS_WIN = 3, POINTS_DRAW = 1;
+
+	private final List<Entrant> entrants = new ArrayList<>();
+	private int interpreter = World.INTERPRETER_TREE;
+	private int games = 1;
+	private long seed = new Random().nextLong();
+
+	/** A program taking part and its running totals */
+	static class Entrant {
+		final String name;
+		final RobotProgramNode program;
+		int played, won, drawn, lost;
+
+		Entrant(String name, RobotProgramNode program) {
+			this.name = name;
+			this.program = program;
+		}
+
+		int points() {
+			return won * POINTS_WIN + drawn * POINTS_DRAW;
+		}
+	}
+
+	/** One game between two entrants, red is robot 1 */
+	static class Match {
+		final Entrant red, blue;
+		final long seed;
+		int result = World.RESULT_NONE;
+		int ticks;
+
+		Match(Entrant red, Entrant blue, long seed) {
+			this.red = red;
+			this.blue = blue;
+			this.seed = seed;
+		}
+	}
+
+	public void setInterpreter(int interpreter) {
+		this.interpreter = interpreter;
+	}
+
+	public void setGames(int games) {
+		this.games = games;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * Adds every program in the directory that parses.
+	 */
+	public void addPrograms(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null) {
+			System.out.println("Not a directory: " + dir);
+			return;
+		}
+		Arrays.sort(files);
+		for (File f : files) {
+			if (f.isFile() && f.getName().endsWith(".prog")) {
+				RobotProgramNode prog = Parser.parseFile(f);
+				if (prog == null) {
+					System.out.println("Skipping " + f.getName());
+				} else {
+					entrants.add(new Entrant(f.getName(), prog));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Plays the whole round robin on the given number of threads.
+	 *
+	 * @return every match played, in schedule order
+	 */
+	public List<Match> play(int threads) throws InterruptedException {
+		long[] seeds = new long[games];
+		SplittableRandom rand = new SplittableRandom(seed);
+		for (int g = 0; g < games; g++) {
+			seeds[g] = rand.nextLong();
+		}
+		List<Match> matches = new ArrayList<>();
+		for (Entrant red : entrants) {
+			for (Entrant blue : entrants) {
+				if (red != blue) {
+					for (int g = 0; g < games; g++) {
+						matches.add(new Match(red, blue, seeds[g]));
+					}
+				}
+			}
+		}
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> running = new ArrayList<>();
+			for (final Match m : matches) {
+				running.add(pool.submit(new Runnable() {
+					@Override
+					public void run() {
+						playMatch(m);
+					}
+				}));
+			}
+			for (Future<?> f : running) {
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					e.getCause().printStackTrace();
+				}
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		for (Match m : matches) {
+			record(m);
+		}
+		return matches;
+	}
+
+	private void playMatch(Match m) {
+		World world = play(m.red.program, m.blue.program, m.seed, interpreter, TICK_LIMIT, true);
+		m.result = world.getResult();
+		m.ticks = world.getTicks().getTick();
+	}
+
+	/**
+	 * Plays one headless match with nothing recorded or printed, red as robot
+	 * 1. The match ends only by the rules, at the latest on the tick limit,
+	 * so a seed always gives the same result. A program that crashes has just
+	 * stopped, and the match goes on.
+	 *
+	 * @param reportCrashes
+	 *            whether to print the stack trace of a program that crashes
+	 * @return the world, once the match is over
+	 */
+	static World play(RobotProgramNode red, RobotProgramNode blue, long seed, int interpreter, int tickLimit,
+			boolean reportCrashes) {
+		World world = new World(false, seed);
+		world.setTickLimit(tickLimit);
+		world.setTrace(new StateTrace(StateTrace.OFF));
+		world.setDebugSink(DebugLog.DROP);
+		world.getRobot(1).setProgram(World.forInterpreter(red, interpreter));
+		world.getRobot(2).setProgram(World.forInterpreter(blue, interpreter));
+		try {
+			join(world.start(), "match with seed " + seed);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			world.reset();
+		} catch (ExecutionException e) {
+			if (reportCrashes) {
+				System.err.println("Robot program crashed in the match with seed " + seed);
+				e.getCause().printStackTrace();
+			}
+		}
+		return world;
+	}
+
+	/**
+	 * Waits for a match to end, reporting it if it takes longer than
+	 * MATCH_WARNING, which would mean a program is getting round the limits.
+	 */
+	static void join(MatchHandle match, String name) throws InterruptedException, ExecutionException {
+		if (!match.join(MATCH_WARNING)) {
+			System.err.println("The " + name + " is still running after " + MATCH_WARNING + "ms");
+			match.join();
+		}
+	}
+
+	private static void record(Match m) {
+		m.red.played++;
+		m.blue.played++;
+		if (m.result == 1) {
+			m.red.won++;
+			m.blue.lost++;
+		} else if (m.result == 2) {
+			m.blue.won++;
+			m.red.lost++;
+		} else {
+			// draws include matches where both programs just stopped
+			m.red.drawn++;
+			m.blue.drawn++;
+		}
+	}
+
+	/** The entrants, best first */
+	public List<Entrant> standings() {
+		List<Entrant> table = new ArrayList<>(entrants);
+		Collections.sort(table, new Comparator<Entrant>() {
+			@Override
+			public int compare(Entrant a, Entrant b) {
+				if (a.points() != b.points()) {
+					return b.points() - a.points();
+				}
+				if (a.won != b.won) {
+					return b.won - a.won;
+				}
+				return a.name.compareTo(b.name);
+			}
+		});
+		return table;
+	}
+
+	public void printStandings() {
+		System.out.printf("%-4s %-24s %4s %4s %4s %4s %5s%n", "#", "program", "P", "W", "D", "L", "Pts");
+		int pos = 1;
+		for (Entrant e : standings()) {
+			System.out.printf("%-4d %-24s %4d %4d %4d %4d %5d%n", pos++, e.name, e.played, e.won, e.drawn, e.lost,
+					e.points());
+		}
+	}
+
+	/** Writes one line per match, for further analysis */
+	public static void writeResults(List<Match> matches, File out) throws IOException {
+		try (PrintWriter w = new PrintWriter(out, "UTF-8")) {
+			w.println("red,blue,seed,result,ticks");
+			for (Match m : matches) {
+				String result = m.result == 1 ? "red" : m.result == 2 ? "blue" : "draw";
+				w.println(m.red.name + "," + m.blue.name + "," + m.seed + "," + result + "," + m.ticks);
+			}
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0) {
+			System.out.println("Usage: Tournament dir [games] [threads] [tree|vm|jit|spec] [results.csv] [seed]");
+			return;
+		}
+		Tournament t = new Tournament();
+		if (args.length > 1) {
+			t.setGames(Integer.parseInt(args[1]));
+		}
+		int threads = Runtime.getRuntime().availableProcessors();
+		if (args.length > 2) {
+			threads = Integer.parseInt(args[2]);
+		}
+		if (args.length > 3) {
+			if (args[3].equals("vm")) {
+				t.setInterpreter(World.INTERPRETER_VM);
+			} else if (args[3].equals("jit")) {
+				t.setInterpreter(World.INTERPRETER_JIT);
+			} else if (args[3].equals("spec")) {
+				t.setInterpreter(World.INTERPRETER_SPECIALISING);
+			}
+		}
+		if (args.length > 5) {
+			t.setSeed(Long.parseLong(args[5]));
+		}
+		t.addPrograms(new File(args[0]));
+
+		long start = System.nanoTime();
+		List<Match> matches = t.play(threads);
+		long millis = (System.nanoTime() - start) / 1000000;
+		t.printStandings();
+		System.out.println(matches.size() + " matches on " + threads + " threads in " + millis + "ms, seed "
+				+ t.getSeed());
+		if (args.length > 4) {
+			writeResults(matches, new File(args[4]));
+		}
+	}
+}
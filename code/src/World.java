@@ -1,109 +1,665 @@
 
 import java.awt.Point;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class World {
 
+	/** The default width and height of the world, in cells */
 	public static final int SIZE = 12;
 
-	protected Set<Point> availableFuel = Collections.newSetFromMap(new ConcurrentHashMap<Point, Boolean>());
-	private Random rand = new Random();
+	/** How loaded programs are run, see forInterpreter */
+	public static final int INTERPRETER_TREE = 0, INTERPRETER_VM = 1, INTERPRETER_JIT = 2,
+			INTERPRETER_SPECIALISING = 3;
+
+	private final int size;
+	private BarrelIndex barrelIndex;
+	/** Whether a snapshot shares barrelIndex, which must then be copied before changing */
+	private boolean barrelsShared = false;
+	private final long seed;
+	/** Tells this world's flight recorder events apart from other worlds' */
+	private final long matchId = MATCH_IDS.incrementAndGet();
+	private SplitMix64 rand;
 	protected Robot[] robots;
+	/** The robot standing on each cell, indexed by cell() */
+	private final Robot[] occupants;
+	/** How many robots are headed for each cell this tick */
+	private final int[] headingFor;
+	/** The cells each robot was last indexed at, to clear them again */
+	private int[] indexedCell, indexedTarget;
+	private int interpreter = INTERPRETER_TREE;
+	private TickEngine ticks;
+	private MatchHandle match;
+	private final boolean paced;
+	private int tickLimit = 0;
+	private DebugLog.Sink debugSink;
+	private volatile int result = RESULT_NONE;
+	private StateTrace trace = new StateTrace(StateTrace.TEXT);
+	private final List<TickListener> listeners = new CopyOnWriteArrayList<>();
+
+	public static final int RESULT_NONE = -1, RESULT_DRAW = 0;
+
+	/**
+	 * Runs robot programs for every world. The threads are daemons, reused
+	 * from one match to the next.
+	 */
+	private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread t = new Thread(r, "robot-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		}
+	});
+
+	private static final AtomicLong MATCH_IDS = new AtomicLong();
 
+	/** How long reset waits for the robot programs to stop, in ms */
+	private static final long RESET_TIMEOUT = 1000;
+
+	/**
+	 * A world for the GUI, which only advances when its animation clock
+	 * ticks.
+	 */
 	public World() {
-		robots = new Robot[] { null, new Robot(this, 0, 0, "red", false), new Robot(this, SIZE - 1, SIZE - 1, "blue", false) };
+		this(true);
+	}
+
+	/**
+	 * @param paced
+	 *            whether the world waits for tick() between updates, if not it
+	 *            advances as soon as every robot has acted.
+	 */
+	public World(boolean paced) {
+		this(paced, new Random().nextLong());
+	}
+
+	/**
+	 * A world whose fuel barrels are placed by a generator seeded with the
+	 * given seed. Robots act in lockstep and their actions are resolved in a
+	 * fixed order, so the same programs and seed always play out the same.
+	 */
+	public World(boolean paced, long seed) {
+		this(paced, seed, 2);
+	}
+
+	/**
+	 * A free-for-all world with the given number of robots, numbered from 1.
+	 * Robots 1 and 2 start in opposite corners as usual, the rest on free
+	 * cells chosen by the seeded generator.
+	 */
+	public World(boolean paced, long seed, int robotCount) {
+		this(paced, seed, robotCount, SIZE);
+	}
+
+	/**
+	 * A world of size x size cells. Large worlds cost no more per tick than
+	 * small ones with the same robots and barrels.
+	 */
+	public World(boolean paced, long seed, int robotCount, int size) {
+		if (size < 2) {
+			throw new IllegalArgumentException("World size " + size + " is too small");
+		}
+		if (robotCount < 1 || robotCount > size * size) {
+			throw new IllegalArgumentException("Cannot fit " + robotCount + " robots in the world");
+		}
+		this.size = size;
+		occupants = new Robot[size * size];
+		headingFor = new int[size * size];
+		barrelIndex = new BarrelIndex(size);
+		this.seed = seed;
+		rand = new SplitMix64(seed);
+		robots = new Robot[robotCount + 1];
+		for (int i = 1; i <= robotCount; i++) {
+			int x = 0, y = 0;
+			if (i == 2) {
+				x = y = size - 1;
+			} else if (i > 2) {
+				do {
+					x = rand.nextInt(size);
+					y = rand.nextInt(size);
+				} while (occupants[cell(x, y)] != null);
+			}
+			// only red and blue sprites exist, so larger matches alternate them
+			robots[i] = new Robot(this, x, y, (i % 2 == 1) ? "red" : "blue", false);
+			robots[i].setId(i);
+			occupants[cell(x, y)] = robots[i];
+		}
+		indexRobots();
+		ticks = new TickEngine(this, paced);
+		this.paced = paced;
 	}
 
 	/**
 	 * This world can no longer be used after this call.
 	 */
 	public void reset() {
-		availableFuel.clear();
-		for (int i = 1; i <= 2; i++) {
+		writableBarrels().clear();
+		for (int i = 1; i < robots.length; i++) {
 			robots[i].updatePending();
 			robots[i].cancel();
 		}
+		ticks.stop();
+		if (match != null) {
+			try {
+				if (!match.join(RESET_TIMEOUT)) {
+					System.out.println("Robot programs did not stop after reset");
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				e.getCause().printStackTrace();
+			}
+		}
+	}
+
+	/** Where the robots record their states, printed as text by default */
+	public StateTrace getTrace() {
+		return trace;
+	}
+
+	/** Replaces the trace, call before the match starts */
+	public void setTrace(StateTrace trace) {
+		this.trace = trace;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public TickEngine getTicks() {
+		return ticks;
+	}
+
+	/** Whether the world waits for tick(), as the GUI's does */
+	public boolean isPaced() {
+		return paced;
+	}
+
+	/**
+	 * Called by the GUI clock, the world advances once the robots have all
+	 * acted as well.
+	 */
+	public void tick() {
+		ticks.clock();
+	}
+
+	/**
+	 * Called by a GUI clock that runs on its own thread: the world advances
+	 * once the robots have all acted, and this returns once it has.
+	 *
+	 * @return false once the world has been reset
+	 */
+	public boolean tickAndWait() throws InterruptedException {
+		return ticks.clockAndWait();
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * A snapshot of the barrels currently in the world, as cells packed into
+	 * longs; see cellX and cellY.
+	 */
+	public long[] getBarrels() {
+		return barrelIndex.snapshot();
+	}
+
+	public static int cellX(long cell) {
+		return BarrelIndex.x(cell);
+	}
+
+	public static int cellY(long cell) {
+		return BarrelIndex.y(cell);
+	}
+
+	public boolean hasBarrel(int x, int y) {
+		return barrelIndex.contains(x, y);
 	}
 
-	public Set<Point> getAvailableFuel() {
-		return availableFuel;
+	public int getBarrelCount() {
+		return barrelIndex.size();
+	}
+
+	/**
+	 * Adds a barrel, unless there is one on that cell already. Even then the
+	 * order of barrels at equal distances can change, see BarrelOrder.
+	 */
+	public void addBarrel(int x, int y) {
+		writableBarrels().add(x, y);
+	}
+
+	/**
+	 * Takes the barrel on a cell, if there is one, in one atomic step.
+	 *
+	 * @return whether there was a barrel on that cell to take
+	 */
+	boolean takeBarrel(int x, int y) {
+		return barrelIndex.contains(x, y) && writableBarrels().claim(x, y);
+	}
+
+	/**
+	 * The k barrels nearest the given cell, nearest first, with barrels at
+	 * the same distance in the order the game has always given them.
+	 */
+	List<Point> nearestBarrels(int x, int y, int k) {
+		return barrelIndex.nearest(x, y, k);
 	}
 
 	public void updateWorld() {
+		GameEvents.TickEvent event = new GameEvents.TickEvent();
+		event.begin();
+		// actions are resolved in robot order, not in the order they arrived
+		indexRobots();
+		refuseMoves();
+		for (int i = 1; i < robots.length; i++) {
+			robots[i].resolveAction();
+		}
 		addFuel(false);
-		for (int i = 1; i <= 2; i++) {
-			robots[i].updatePending();
+		// every robot moves before any looks around
+		for (int i = 1; i < robots.length; i++) {
+			robots[i].applyPending();
+		}
+		indexRobots();
+		for (int i = 1; i < robots.length; i++) {
+			robots[i].sense();
 		}
+		if (result == RESULT_NONE) {
+			int alive = 0, last = 0;
+			for (int i = 1; i < robots.length; i++) {
+				if (!robots[i].outOfFuel()) {
+					alive++;
+					last = i;
+				} else if (!paced) {
+					// headless, nothing else will stop it
+					robots[i].halt();
+				}
+			}
+			int tick = ticks.getTick();
+			if (alive <= 1 || (tickLimit > 0 && tick >= tickLimit)) {
+				result = (alive == 1) ? last : RESULT_DRAW;
+				if (!paced) {
+					for (int i = 1; i < robots.length; i++) {
+						robots[i].halt();
+					}
+					ticks.stop();
+				}
+			}
+		}
+		event.end();
+		if (event.shouldCommit()) {
+			int alive = 0;
+			for (int i = 1; i < robots.length; i++) {
+				if (!robots[i].outOfFuel()) {
+					alive++;
+				}
+			}
+			event.match = matchId;
+			event.tick = ticks.getTick();
+			event.alive = alive;
+			event.barrels = getBarrelCount();
+			event.result = result;
+			event.commit();
+		}
+		for (TickListener listener : listeners) {
+			listener.ticked(this);
+		}
+	}
+
+	/**
+	 * Told about every tick, after the world has been updated and while every
+	 * robot is waiting for the next one, so the world can be looked at or
+	 * snapshot safely.
+	 */
+	public interface TickListener {
+		void ticked(World world);
+	}
+
+	public void addTickListener(TickListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeTickListener(TickListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Captures the state of the world: the barrels, each robot's position,
+	 * direction, fuel and shield, the tick, the result and the generator.
+	 * Robot programs are not part of it. Call before the match starts, after
+	 * it ends or from a TickListener.
+	 *
+	 * The barrels are shared with the snapshot rather than copied. A world
+	 * that goes on to change them, this one or one restored from the
+	 * snapshot, copies only the bucket and hash bin lists it changes, see
+	 * CellTable.
+	 */
+	public WorldSnapshot snapshot() {
+		int[] state = new int[robots.length * WorldSnapshot.ROBOT_INTS];
+		for (int i = 1; i < robots.length; i++) {
+			robots[i].save(state, i * WorldSnapshot.ROBOT_INTS);
+		}
+		barrelIndex.flatten();
+		barrelsShared = true;
+		return new WorldSnapshot(size, seed, ticks.getTick(), result, state, barrelIndex, rand.copy());
+	}
+
+	/**
+	 * Puts this world back in the state of a snapshot of a world the same size
+	 * with the same number of robots, ready to start again. Much cheaper than
+	 * forking a new world, so rollouts can reuse one world.
+	 */
+	public void restore(WorldSnapshot snapshot) {
+		if (match != null && !match.isDone()) {
+			throw new IllegalStateException("Cannot restore a world while its robots are running");
+		}
+		if (snapshot.getSize() != size || snapshot.getRobotCount() != getRobotCount()) {
+			throw new IllegalArgumentException("Snapshot is of a different world");
+		}
+		barrelIndex = snapshot.barrels;
+		barrelsShared = true;
+		rand = snapshot.rand.copy();
+		result = snapshot.getResult();
+		for (int i = 1; i < robots.length; i++) {
+			robots[i].restore(snapshot.robots, i * WorldSnapshot.ROBOT_INTS);
+		}
+		ticks = new TickEngine(this, paced, snapshot.getTick());
+		match = null;
+		indexRobots();
+		for (int i = 1; i < robots.length; i++) {
+			robots[i].sense();
+		}
+	}
+
+	private BarrelIndex writableBarrels() {
+		if (barrelsShared) {
+			barrelIndex = barrelIndex.copy();
+			barrelsShared = false;
+		}
+		return barrelIndex;
+	}
+
+	private int cell(int x, int y) {
+		return y * size + x;
 	}
 
+	/**
+	 * Updates the spatial index of the robots to their current and target
+	 * positions, once per tick. Only the cells indexed last time are cleared,
+	 * so this costs the same however large the world is.
+	 */
+	void indexRobots() {
+		if (indexedCell == null || indexedCell.length != robots.length) {
+			// first time, or the robots were replaced
+			Arrays.fill(occupants, null);
+			Arrays.fill(headingFor, 0);
+			indexedCell = new int[robots.length];
+			indexedTarget = new int[robots.length];
+		}
+		for (int i = 1; i < robots.length; i++) {
+			occupants[indexedCell[i]] = null;
+			// refuseMove only shifts counts between these two cells
+			headingFor[indexedCell[i]] = 0;
+			headingFor[indexedTarget[i]] = 0;
+		}
+		for (int i = 1; i < robots.length; i++) {
+			Robot r = robots[i];
+			indexedCell[i] = cell(r.getX(), r.getY());
+			indexedTarget[i] = cell(r.getTargetX(), r.getTargetY());
+			occupants[indexedCell[i]] = r;
+			headingFor[indexedTarget[i]]++;
+		}
+	}
+
+	/** The robot standing on the given cell, or null */
+	public Robot robotAt(int x, int y) {
+		if (x < 0 || y < 0 || x >= size || y >= size) {
+			return null;
+		}
+		return occupants[cell(x, y)];
+	}
+
+	/**
+	 * Refuses, in robot order, the moves that refuseMove would. A robot that
+	 * stays put can block a move let through earlier in the round, onto its
+	 * cell, so rounds go on until none refuses anything.
+	 */
+	private void refuseMoves() {
+		boolean refused = true;
+		while (refused) {
+			refused = false;
+			for (int i = 1; i < robots.length; i++) {
+				if (robots[i].refuseMove()) {
+					refused = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Called while resolving a move from (x, y) to (toX, toY). The move is
+	 * refused if another robot is headed for the same cell, in which case the
+	 * robot is counted as staying put.
+	 */
+	boolean refuseMove(int x, int y, int toX, int toY) {
+		if (headingFor[cell(toX, toY)] <= 1) {
+			return false;
+		}
+		headingFor[cell(toX, toY)]--;
+		headingFor[cell(x, y)]++;
+		return true;
+	}
+
+	/**
+	 * The outcome of the match: RESULT_NONE while it is still going,
+	 * RESULT_DRAW, or the id of the winning robot. A robot wins when every
+	 * other robot has run out of fuel; the last ones running out together or
+	 * reaching the tick limit is a draw.
+	 */
+	public int getResult() {
+		return result;
+	}
+
+	/**
+	 * Ends the match as a draw after this many ticks, 0 for no limit.
+	 */
+	public void setTickLimit(int tickLimit) {
+		this.tickLimit = tickLimit;
+	}
+
+	/** The id every flight recorder event from this world carries, see GameEvents */
+	long getMatchId() {
+		return matchId;
+	}
+
+	int getTickLimit() {
+		return tickLimit;
+	}
+
+	/**
+	 * Where this world's robots report debug events, instead of the sink set
+	 * on DebugLog. Null, the default, uses that one; DebugLog.DROP drops them.
+	 */
+	public void setDebugSink(DebugLog.Sink debugSink) {
+		this.debugSink = debugSink;
+	}
+
+	public DebugLog.Sink getDebugSink() {
+		return debugSink;
+	}
+
+
 	public void loadRobotProgram(int id, File code) {
-		RobotProgramNode prog = Parser.parseFile(code);
+		setRobotProgram(id, Parser.parseFile(code));
+	}
+
+	/**
+	 * Loads a program from source held in memory, this is a cache lookup if
+	 * the same source has been loaded before.
+	 */
+	public void loadRobotProgram(int id, CharSequence code) {
+		setRobotProgram(id, Parser.parse(code));
+	}
+
+	private void setRobotProgram(int id, RobotProgramNode prog) {
 		if (prog != null) {
 			System.out.println("Robot " + id + " now has program: ");
 			System.out.println(prog);
-			robots[id].setProgram(prog);
+			robots[id].setProgram(forInterpreter(prog, interpreter));
 		}
 	}
 
-	public void start() {
+	/**
+	 * Selects how programs loaded from now on are run.
+	 */
+	public void setInterpreter(int interpreter) {
+		this.interpreter = interpreter;
+	}
+
+	/**
+	 * Prepares a parsed program to be run by the given interpreter: the
+	 * optimised tree, compiled to bytecode for the VM, compiled to a JVM class,
+	 * or as a self-specialising tree.
+	 */
+	public static RobotProgramNode forInterpreter(RobotProgramNode prog, int interpreter) {
+		if (prog == null) {
+			return null;
+		}
+		prog = Optimiser.optimise(prog);
+		switch (interpreter) {
+		case INTERPRETER_VM:
+			return BytecodeCompiler.compile(prog);
+		case INTERPRETER_JIT:
+			return JitCompiler.compile(prog);
+		case INTERPRETER_SPECIALISING:
+			return SpecialisingInterpreter.create(prog);
+		default:
+			return prog;
+		}
+	}
+
+	/**
+	 * Starts every robot's program on the shared robot executor.
+	 *
+	 * @return a handle to wait for the programs to end
+	 */
+	public MatchHandle start() {
 		// add some initial fuel
-		if (availableFuel.isEmpty()) {
+		if (barrelIndex.size() == 0) {
 			addFuel(true);
 			addFuel(true);
 		}
-		new Thread(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					robots[1].run();
-				} catch (RobotInterruptedException e) {
-				}
-				robots[1].setFinished(true);
-			}
-		}).start();
-		new Thread(new Runnable() {
-			@Override
-			public void run() {
-				try {
-					robots[2].run();
-				} catch (RobotInterruptedException e) {
+		// every robot must be a party before any can act, or the first tick
+		// could go ahead without the rest
+		for (int i = 1; i < robots.length; i++) {
+			ticks.register();
+		}
+		List<Future<?>> tasks = new ArrayList<>();
+		for (int i = 1; i < robots.length; i++) {
+			final Robot robot = robots[i];
+			tasks.add(EXECUTOR.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						robot.run();
+					} catch (RobotInterruptedException e) {
+					} finally {
+						robot.setFinished(true);
+						ticks.deregister();
+					}
 				}
-				robots[2].setFinished(true);
-			}
-		}).start();
+			}));
+		}
+		match = new MatchHandle(tasks);
+		return match;
 	}
 
 	public Robot getRobot(int id) {
-		if (id <= 0 || id > robots.length) {
+		if (id <= 0 || id >= robots.length) {
 			return null;
 		}
 		return robots[id];
 	}
 
-	/** Returns the opponent robot of the argument */
+	/** The number of robots, which are numbered from 1 */
+	public int getRobotCount() {
+		return robots.length - 1;
+	}
+
+	/**
+	 * Returns the nearest opponent of the argument by grid distance, or null
+	 * if it has none. Searches the cells in rings of growing distance, so on
+	 * a crowded board only a few cells are looked at; once that has cost more
+	 * than checking every robot, it checks every robot instead.
+	 */
 	public Robot getOtherRobot(Robot robot) {
-		if (robot == robots[2])
-			return robots[1];
-		if (robot == robots[1])
-			return robots[2];
+		int x = robot.getX(), y = robot.getY();
+		int checked = 0;
+		for (int d = 1; d <= 2 * (size - 1); d++) {
+			checked += 4 * d;
+			if (checked > robots.length) {
+				return nearestOf(robot);
+			}
+			for (int dx = -d; dx <= d; dx++) {
+				int dy = d - Math.abs(dx);
+				Robot other = robotAt(x + dx, y + dy);
+				if ((other == null || other == robot) && dy != 0) {
+					other = robotAt(x + dx, y - dy);
+				}
+				if (other != null && other != robot) {
+					return other;
+				}
+			}
+		}
 		return null;
 	}
 
+	private Robot nearestOf(Robot robot) {
+		Robot nearest = null;
+		int best = Integer.MAX_VALUE;
+		for (int i = 1; i < robots.length; i++) {
+			Robot other = robots[i];
+			int d = Math.abs(other.getX() - robot.getX()) + Math.abs(other.getY() - robot.getY());
+			if (other != robot && d < best) {
+				nearest = other;
+				best = d;
+			}
+		}
+		return nearest;
+	}
+
 	private void addFuel(boolean definitely) {
 		if (definitely || rand.nextDouble() < 0.2) {
-			int x = rand.nextInt(12);
-			int y = rand.nextInt(12);
-			Point fuel = new Point(x, y);
-			availableFuel.add(fuel);
+			int x = rand.nextInt(size);
+			int y = rand.nextInt(size);
+			addBarrel(x, y);
 		}
 	}
 	
@@ -112,33 +668,219 @@ public class World {
 			super();
 			// we remake the robots to have noWait set to true, this makes the program run without the timer.
 			// the blue robot is never used, but the red robot does call some methods on it so we can't make it null.
-			this.robots = new Robot[] { null, new Robot(this, 0, 0, "red", true), new Robot(this, SIZE - 1, SIZE - 1, "blue", true) };
+			this.robots = new Robot[] { null, new Robot(this, 0, 0, "red", true), new Robot(this, getSize() - 1, getSize() - 1, "blue", true) };
+			robots[1].setId(1);
+			robots[2].setId(2);
+			indexRobots();
 		}
 
-		public static void main(String[] args) throws IOException {
+		public static void main(String[] args) throws IOException, InterruptedException {
 			if (args.length == 0) {
 				// for the students.
 				System.out.println("WRONG FILE");
 				System.out.println("Use the main function in RoboGame.java to run the assignment.");
 			}
+			if (args.length > 0 && args[0].equals("-batch")) {
+				batch(args);
+				return;
+			}
 			
 			RoboGamePrinter rgp = new RoboGamePrinter();
 			
 			// load the program.
 			RobotProgramNode prog = Parser.parseFile(new File(args[0]));
-			rgp.robots[1].setProgram(prog);
+			int interpreter = (args.length > 2) ? interpreter(args[2]) : INTERPRETER_TREE;
+			rgp.robots[1].setProgram(forInterpreter(prog, interpreter));
 			
 			// load fuel placement from file.
-			List<String> fuel = Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8);
-			for (String line : fuel) {
-				String[] coords = line.split("\\s+");
-				int x = Integer.parseInt(coords[0]);
-				int y = Integer.parseInt(coords[1]);
-				rgp.availableFuel.add(new Point(x, y));
+			int[] fuel = readFuel(new File(args[1]));
+			for (int i = 0; i < fuel.length; i += 2) {
+				rgp.addBarrel(fuel[i], fuel[i + 1]);
 			}
 			
 			// run the robot.
 			rgp.robots[1].run();
 		}
+
+		private static int interpreter(String name) {
+			if (name.equals("vm")) {
+				return INTERPRETER_VM;
+			} else if (name.equals("jit")) {
+				return INTERPRETER_JIT;
+			} else if (name.equals("spec")) {
+				return INTERPRETER_SPECIALISING;
+			}
+			return INTERPRETER_TREE;
+		}
+
+		/** A fuel placement file, one "x y" per line, as x, y pairs */
+		private static int[] readFuel(File file) throws IOException {
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			int[] fuel = new int[lines.size() * 2];
+			for (int i = 0; i < lines.size(); i++) {
+				String[] coords = lines.get(i).split("\\s+");
+				fuel[2 * i] = Integer.parseInt(coords[0]);
+				fuel[2 * i + 1] = Integer.parseInt(coords[1]);
+			}
+			return fuel;
+		}
+
+		/** How a batch run ended, see runOne */
+		private static final int RUN_DONE = 0, RUN_LIMIT = 1, RUN_TIMEOUT = 2, RUN_FAILED = 3;
+		private static final String[] RUN_ENDS = { "done", "tick limit", "timed out", "failed" };
+
+		/**
+		 * Grades many programs against many fuel layouts in one JVM.
+		 *
+		 * Usage: -batch manifest outdir [threads] [tree|vm|jit|spec] [tick-limit] [timeout-ms]
+		 *
+		 * Each line of the manifest is "program fuel-file [output-file]", blank
+		 * lines and lines starting # are skipped. Every run gets a world of its
+		 * own whose states, debug events and parser errors go to its output
+		 * file, by default program-fuel.out in outdir, exactly as the single
+		 * run prints them. Each fuel file is read once, and each distinct
+		 * program parsed once. Programs never stop on their own if they never
+		 * run out of fuel, so a tick limit or timeout ends them; neither is set
+		 * by default. The tick limit counts each action, and under it a program
+		 * that goes Robot.SPIN_LIMIT loop iterations without acting is stopped
+		 * too, as nothing can change while it spins.
+		 */
+		private static void batch(String[] args) throws IOException, InterruptedException {
+			if (args.length < 3) {
+				System.out.println("Usage: -batch manifest outdir [threads] [tree|vm|jit|spec] [tick-limit] [timeout-ms]");
+				return;
+			}
+			File outDir = new File(args[2]);
+			int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+			final int interpreter = (args.length > 4) ? interpreter(args[4]) : INTERPRETER_TREE;
+			final int tickLimit = (args.length > 5) ? Integer.parseInt(args[5]) : 0;
+			final long timeout = (args.length > 6) ? Long.parseLong(args[6]) : 0;
+			if (!outDir.isDirectory() && !outDir.mkdirs()) {
+				throw new IOException("Can't create " + outDir);
+			}
+
+			final List<File[]> runs = new ArrayList<>();
+			for (String line : Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8)) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] parts = line.split("\\s+");
+				File prog = new File(parts[0]), fuel = new File(parts[1]);
+				File out = (parts.length > 2) ? new File(parts[2])
+						: new File(outDir, strip(prog.getName()) + "-" + strip(fuel.getName()) + ".out");
+				runs.add(new File[] { prog, fuel, out });
+			}
+
+			// layouts are shared by every run that uses them, they are only read
+			final Map<File, Object> layouts = new ConcurrentHashMap<>();
+			final Timer timer = new Timer("batch-timeout", true);
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			long start = System.nanoTime();
+			int[] ends = new int[RUN_ENDS.length];
+			try {
+				List<Future<Integer>> running = new ArrayList<>();
+				for (final File[] run : runs) {
+					running.add(pool.submit(new Callable<Integer>() {
+						@Override
+						public Integer call() throws IOException {
+							return runOne(run[0], run[1], run[2], layouts, interpreter, tickLimit, timeout, timer);
+						}
+					}));
+				}
+				for (int i = 0; i < runs.size(); i++) {
+					int end;
+					try {
+						end = running.get(i).get();
+					} catch (ExecutionException e) {
+						System.out.println(runs.get(i)[2] + ": " + e.getCause());
+						end = RUN_FAILED;
+					}
+					ends[end]++;
+					if (end != RUN_DONE) {
+						System.out.println(runs.get(i)[2] + ": " + RUN_ENDS[end]);
+					}
+				}
+			} finally {
+				pool.shutdown();
+				timer.cancel();
+			}
+			long millis = (System.nanoTime() - start) / 1000000;
+			StringBuilder summary = new StringBuilder(runs.size() + " runs on " + threads + " threads in " + millis + "ms:");
+			for (int i = 0; i < ends.length; i++) {
+				summary.append(" ").append(ends[i]).append(" ").append(RUN_ENDS[i]);
+			}
+			System.out.println(summary);
+		}
+
+		private static String strip(String name) {
+			int dot = name.lastIndexOf('.');
+			return (dot > 0) ? name.substring(0, dot) : name;
+		}
+
+		/**
+		 * Plays one program on one fuel layout as main would, printing to the
+		 * output file instead of System.out. Anything a robot throws is printed
+		 * there as an uncaught exception would have been.
+		 */
+		private static int runOne(File progFile, File fuelFile, File outFile, Map<File, Object> layouts,
+				int interpreter, int tickLimit, long timeout, Timer timer) throws IOException {
+			try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(outFile), 1 << 16))) {
+				final RoboGamePrinter rgp = new RoboGamePrinter();
+				rgp.setTrace(new StateTrace(out));
+				rgp.setDebugSink(new DebugLog.ConsoleSink(out));
+				rgp.setTickLimit(tickLimit);
+				final AtomicBoolean timedOut = new AtomicBoolean();
+				TimerTask halt = new TimerTask() {
+					@Override
+					public void run() {
+						timedOut.set(true);
+						rgp.robots[1].halt();
+					}
+				};
+				try {
+					RobotProgramNode prog = null;
+					try {
+						prog = Parser.parse(new String(Files.readAllBytes(progFile.toPath())), out);
+					} catch (IOException e) {
+						out.println("Robot program source file not found");
+					}
+					rgp.robots[1].setProgram(forInterpreter(prog, interpreter));
+
+					Object fuel = layouts.get(fuelFile);
+					if (fuel == null) {
+						try {
+							fuel = readFuel(fuelFile);
+						} catch (IOException | RuntimeException e) {
+							fuel = e;
+						}
+						layouts.put(fuelFile, fuel);
+					}
+					if (fuel instanceof IOException) {
+						throw (IOException) fuel;
+					} else if (fuel instanceof RuntimeException) {
+						throw (RuntimeException) fuel;
+					}
+					int[] barrels = (int[]) fuel;
+					for (int i = 0; i < barrels.length; i += 2) {
+						rgp.addBarrel(barrels[i], barrels[i + 1]);
+					}
+
+					if (timeout > 0) {
+						timer.schedule(halt, timeout);
+					}
+					rgp.robots[1].run();
+					return RUN_DONE;
+				} catch (RobotInterruptedException e) {
+					return timedOut.get() ? RUN_TIMEOUT : RUN_LIMIT;
+				} catch (Exception e) {
+					out.print("Exception in thread \"main\" ");
+					e.printStackTrace(out);
+					return RUN_FAILED;
+				} finally {
+					halt.cancel();
+				}
+			}
+		}
 	}
 }
@@ -3,32 +3,59 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Point;
+import java.awt.GraphicsConfiguration;
 import java.awt.RenderingHints;
-import java.awt.geom.Line2D;
+import java.awt.Transparency;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.imageio.ImageIO;
 import javax.swing.JComponent;
 import javax.swing.JOptionPane;
-
+import javax.swing.Timer;
+
+/**
+ * Draws the world and runs its clock. The world ticks on a clock thread of
+ * its own, at a speed that can be changed while it runs, and the animation
+ * timer just repaints whatever the latest state is. At normal speed each
+ * action is animated across its tick; when ticks are too quick for that,
+ * robots are drawn where they are. Painting allocates nothing per frame: the
+ * grid is drawn once into an image and robot sprites are pre-rotated.
+ */
 @SuppressWarnings("serial")
 public class WorldComponent extends JComponent {
 
 	public static final int GRID_SIZE = 50;
-	private static final int ANIMATION_DELAY = 20;
-	private static final int WORLD_UPDATE_DELAY = 33;
+	/** Milliseconds between frames, for about 60 a second */
+	private static final int ANIMATION_DELAY = 16;
+
+	/**
+	 * Simulation speeds, as multiples of normal speed. UNTHROTTLED ticks as
+	 * soon as the robots have all acted.
+	 */
+	public static final int SPEED_NORMAL = 1, SPEED_10X = 10, SPEED_100X = 100, SPEED_UNTHROTTLED = 0;
+
+	/** The length of a tick at normal speed */
+	private static final long TICK_NANOS = 660 * 1000000L;
+	/** Ticks shorter than this many frames are not animated */
+	private static final int MIN_ANIMATED_FRAMES = 4;
 
 	private BufferedImage fuelImage;
+	/** The grid lines, drawn for a world of gridSize */
+	private BufferedImage gridImage;
+	private int gridSize;
 	private World world;
 	private Timer timer;
+	private Thread clock;
+	private int interpreter = World.INTERPRETER_TREE;
+	private volatile int speed = SPEED_NORMAL;
 
-	private int frame = 0;
+	/** When the world last ticked, by System.nanoTime */
+	private volatile long lastTick;
 
 	public WorldComponent() {
 		super();
@@ -43,80 +70,183 @@ public class WorldComponent extends JComponent {
 	}
 
 	public void start() {
-		timer = new Timer();
-		timer.schedule(new AnimationTask(), 0, ANIMATION_DELAY);
+		timer = new Timer(ANIMATION_DELAY, new AnimationListener());
+		timer.start();
 		world.start();
+		lastTick = System.nanoTime();
+		clock = new Thread(new Clock(world), "world-clock");
+		clock.setDaemon(true);
+		clock.start();
 	}
 
 	public void reset() {
 		if (timer != null)
-			timer.cancel();
+			timer.stop();
+		stopClock();
 		world.reset();
 		world = new World();
+		world.setInterpreter(interpreter);
+	}
+
+	/**
+	 * Sets how fast the world runs, one of the SPEED_ constants, kept across
+	 * resets. Takes effect straight away, even in the middle of a tick.
+	 */
+	public void setSpeed(int speed) {
+		this.speed = speed;
+		Thread c = clock;
+		if (c != null) {
+			LockSupport.unpark(c);
+		}
+	}
+
+	public int getSpeed() {
+		return speed;
+	}
+
+	/** The length of a tick at the current speed, 0 if unthrottled */
+	private long tickNanos() {
+		int s = speed;
+		return (s == SPEED_UNTHROTTLED) ? 0 : TICK_NANOS / s;
+	}
+
+	private void stopClock() {
+		if (clock != null) {
+			clock.interrupt();
+			clock = null;
+		}
+	}
+
+	/**
+	 * Selects the interpreter for programs loaded from now on, kept across
+	 * resets.
+	 */
+	public void setInterpreter(int interpreter) {
+		this.interpreter = interpreter;
+		world.setInterpreter(interpreter);
 	}
 
 	public void loadRobotProgram(int rob, File code) {
 		world.loadRobotProgram(rob, code);
 	}
 
+	public void loadRobotProgram(int rob, CharSequence code) {
+		world.loadRobotProgram(rob, code);
+	}
+
 	@Override
 	protected void paintComponent(Graphics g) {
-		Graphics2D g2d = (Graphics2D) g;
+		int size = world.getSize();
+		if (gridImage == null || gridSize != size) {
+			gridImage = drawGrid(size, getGraphicsConfiguration());
+			gridSize = size;
+		}
+		paintWorld((Graphics2D) g, world, gridImage, fuelImage, getTimeRatio());
+	}
+
+	/**
+	 * Draws the world with the given grid, from drawGrid, and barrel image.
+	 * Shared with MatchExporter, which paints offscreen.
+	 */
+	static void paintWorld(Graphics2D g2d, World world, BufferedImage grid, BufferedImage fuelImage, double time) {
+		// sprites are drawn unscaled, so only the fuel gauges need antialiasing
 		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-		g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-		g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
 
-		g2d.setColor(Color.BLACK);
-		g2d.setStroke(new BasicStroke(2));
+		g2d.drawImage(grid, 0, 0, null);
 
-		for (int i = 0; i <= World.SIZE; i++) {
-			Line2D hline = new Line2D.Double(0, i * GRID_SIZE, 600, i * GRID_SIZE);
-			Line2D vline = new Line2D.Double(i * GRID_SIZE, 0, i * GRID_SIZE, 600);
-			g2d.draw(hline);
-			g2d.draw(vline);
-		}
-
-		for (Point fuel : world.getAvailableFuel()) {
-			int x = fuel.x * GRID_SIZE + GRID_SIZE / 2 - fuelImage.getWidth() / 2;
-			int y = fuel.y * GRID_SIZE + GRID_SIZE / 2 - fuelImage.getHeight() / 2;
+		for (long fuel : world.getBarrels()) {
+			int x = World.cellX(fuel) * GRID_SIZE + GRID_SIZE / 2 - fuelImage.getWidth() / 2;
+			int y = World.cellY(fuel) * GRID_SIZE + GRID_SIZE / 2 - fuelImage.getHeight() / 2;
 			g2d.drawImage(fuelImage, x, y, null);
 		}
 
-		for (int i = 1; i <= 2; i++) {
+		for (int i = 1; i <= world.getRobotCount(); i++) {
 			Robot rob;
 			if ((rob = world.getRobot(i)) != null)
-				rob.draw(g2d, getTimeRatio());
+				rob.draw(g2d, time);
+		}
+	}
+
+	/**
+	 * The grid lines for a world of the given size, as an image compatible
+	 * with gc, or a plain ARGB one when there is no screen.
+	 */
+	static BufferedImage drawGrid(int size, GraphicsConfiguration gc) {
+		int extent = size * GRID_SIZE;
+		BufferedImage image = (gc != null) ? gc.createCompatibleImage(extent + 1, extent + 1, Transparency.TRANSLUCENT)
+				: new BufferedImage(extent + 1, extent + 1, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.setColor(Color.BLACK);
+		g.setStroke(new BasicStroke(2));
+		for (int i = 0; i <= size; i++) {
+			g.drawLine(0, i * GRID_SIZE, extent, i * GRID_SIZE);
+			g.drawLine(i * GRID_SIZE, 0, i * GRID_SIZE, extent);
 		}
+		g.dispose();
+		return image;
 	}
 
+	/**
+	 * How far through the current tick it is, from 0 to 1, for animating the
+	 * robots' actions. Always 0 when ticks are too short to animate.
+	 */
 	private double getTimeRatio() {
-		int base = frame / WORLD_UPDATE_DELAY;
-		return (double) frame / WORLD_UPDATE_DELAY - base;
+		long period = tickNanos();
+		if (period < MIN_ANIMATED_FRAMES * ANIMATION_DELAY * 1000000L) {
+			return 0;
+		}
+		return Math.min(1, (double) (System.nanoTime() - lastTick) / period);
 	}
 
-	private class AnimationTask extends TimerTask {
+	/** Ticks the world at the current speed until the match ends or is reset */
+	private class Clock implements Runnable {
+		private final World world;
 
-		public AnimationTask() {
-			frame = 0;
+		Clock(World world) {
+			this.world = world;
 		}
 
 		@Override
 		public void run() {
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					// the speed may change while waiting
+					long wait;
+					while ((wait = lastTick + tickNanos() - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(wait);
+						if (Thread.currentThread().isInterrupted()) {
+							return;
+						}
+					}
+					if (!world.tickAndWait() || world.getResult() != World.RESULT_NONE) {
+						// an empty world would otherwise tick as fast as it can
+						return;
+					}
+					lastTick = System.nanoTime();
+				}
+			} catch (InterruptedException e) {
+				// reset
+			}
+		}
+	}
+
+	/** Runs on the event dispatch thread, so the dialog can be shown directly */
+	private class AnimationListener implements ActionListener {
+
+		@Override
+		public void actionPerformed(ActionEvent e) {
 			// test for any deaths
 			boolean r1dead = world.getRobot(1).isDead();
 			boolean r2dead = world.getRobot(2).isDead();
 			if (r1dead || r2dead) {
-				timer.cancel();
+				timer.stop();
 				timer = null;
+				stopClock();
 				String msg = (r1dead && r2dead) ? "Both robots" : r1dead ? "Robot 1 (red)" : "Robot 2 (blue)";
 				JOptionPane.showMessageDialog(null, msg + " ran out of fuel!");
 				return;
 			}
-
-			// logic tick
-			frame++;
-			if (frame % WORLD_UPDATE_DELAY == 0)
-				world.updateWorld();
 			repaint();
 		}
 	}
@@ -0,0 +1,101 @@
+/**
+ * The state of a World at one tick, from World.snapshot: the barrels, each
+ * robot's position, direction, fuel and shield, the tick, the result and the
+ * random generator, so fuel keeps appearing where it would have.
+ *
+ * A snapshot never changes. Its barrels are shared with the world it came
+ * from and any world restored from it. A world that goes on to change them
+ * copies the short lists of barrels it changes, each a bucket of the index
+ * or a bin of BarrelOrder, and shares the rest, so a rollout costs in
+ * proportion to the barrels it adds and takes rather than to all of them.
+ * Taking a snapshot copies the table of lists of a world that has changed
+ * since it was restored, one reference per bucket and bin. For many rollouts
+ * from one snapshot, restore the same world each time rather than forking:
+ * a new world also allocates its robot index, one cell per square.
+ */
+public final class WorldSnapshot {
+
+	/** Ints saved per robot: x, y, dir, fuel, shield */
+	static final int ROBOT_INTS = 5;
+
+	private final int size;
+	private final long seed;
+	private final int tick;
+	private final int result;
+	/** ROBOT_INTS per robot, from robot 1 at ROBOT_INTS */
+	final int[] robots;
+	/** Shared, never changed while this snapshot can reach it */
+	final BarrelIndex barrels;
+	/** Never used directly, worlds take copies */
+	final SplitMix64 rand;
+
+	WorldSnapshot(int size, long seed, int tick, int result, int[] robots, BarrelIndex barrels, SplitMix64 rand) {
+		this.size = size;
+		this.seed = seed;
+		this.tick = tick;
+		this.result = result;
+		this.robots = robots;
+		this.barrels = barrels;
+		this.rand = rand;
+	}
+
+	/**
+	 * A new world in this state, with robots that have no program yet.
+	 */
+	public World fork(boolean paced) {
+		World world = new World(paced, seed, getRobotCount(), size);
+		world.restore(this);
+		return world;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	/** The seed of the world this was taken from */
+	public long getSeed() {
+		return seed;
+	}
+
+	public int getTick() {
+		return tick;
+	}
+
+	/** The world's result when this was taken, see World.getResult */
+	public int getResult() {
+		return result;
+	}
+
+	public int getRobotCount() {
+		return robots.length / ROBOT_INTS - 1;
+	}
+
+	public int getBarrelCount() {
+		return barrels.size();
+	}
+
+	public boolean hasBarrel(int x, int y) {
+		return barrels.contains(x, y);
+	}
+
+	public int getX(int robot) {
+		return robots[robot * ROBOT_INTS];
+	}
+
+	public int getY(int robot) {
+		return robots[robot * ROBOT_INTS + 1];
+	}
+
+	/** 0 to 3 for north, west, south and east */
+	public int getDir(int robot) {
+		return robots[robot * ROBOT_INTS + 2];
+	}
+
+	public int getFuel(int robot) {
+		return robots[robot * ROBOT_INTS + 3];
+	}
+
+	public boolean getShield(int robot) {
+		return robots[robot * ROBOT_INTS + 4] != 0;
+	}
+}
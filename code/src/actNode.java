@@ -0,0 +1,51 @@
+class actNode implements RobotProgramNode{
+	ACTION action;
+	RobotSensorNode iter;
+
+	public void setIterations(RobotSensorNode iter) {
+		this.iter = iter;
+	}
+
+	public void setAction(ACTION action) {
+		this.action = action;
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		int iterations = (iter != null) ? iter.evaluate(robot) : 1;
+		switch(action){
+			case move:
+				for(int i=0;i<iterations;i++){
+					robot.move();
+				}
+				break;
+			case turnL:
+				robot.turnLeft();
+				break;
+			case turnR:
+				robot.turnRight();
+				break;
+			case takeFuel:
+				robot.takeFuel();
+				break;
+			case wait:
+				for(int i=0;i<iterations;i++){
+					robot.idleWait();
+				}
+				break;
+			case turnAround:
+				robot.turnAround();
+				break;
+			case shieldOn:
+				robot.setShield(true);
+				break;
+			case shieldOff:
+				robot.setShield(false);
+				break;
+		}
+	}
+	public String toString(){
+		if(iter != null) return action.name() +"("+iter.toString()+")";
+		return action.name();
+	}
+}
@@ -0,0 +1,18 @@
+class assignmentNode implements RobotProgramNode{
+	variableNode variable;
+	RobotSensorNode expression;
+
+	public void setExpression(RobotSensorNode expression) {
+		this.expression = expression;
+	}
+	public void setVariable(variableNode variable) {
+		this.variable = variable;
+	}
+	public String toString(){
+		return variable.toString() + "=" + expression.toString();
+	}
+	@Override
+	public void execute(Robot robot) {
+		robot.getVariables()[variable.getSlot()] = expression.evaluate(robot);
+	}
+}
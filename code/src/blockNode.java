@@ -0,0 +1,20 @@
+import java.util.ArrayList;
+
+class blockNode implements RobotProgramNode{
+	ArrayList<RobotProgramNode> nodes = new ArrayList<>();
+
+	public void addNode(RobotProgramNode node) {
+		this.nodes.add(node);
+	}
+	public String toString(){
+		StringBuilder ret = new StringBuilder("{\n");
+		for(RobotProgramNode n : nodes){
+			ret.append(" + ").append(n.toString());
+		}
+		return ret + "\n}";
+	}
+	@Override
+	public void execute(Robot robot) {
+		nodes.forEach(node -> node.execute(robot));
+	}
+}
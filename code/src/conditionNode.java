@@ -0,0 +1,70 @@
+import java.util.ArrayList;
+
+class conditionNode implements RobotEvaluateNode{
+	COMP relop;
+	CONDS cond;
+	ArrayList<RobotEvaluateNode> conds = new ArrayList<>();
+	RobotSensorNode sen;
+	RobotSensorNode num;
+
+	public void setCond(CONDS cond) {
+		this.cond = cond;
+	}
+	public void addCond(RobotEvaluateNode condition){
+		conds.add(condition);
+	}
+	public void setNum(RobotSensorNode num){
+		this.num = num;
+	}
+	public void setSen(RobotSensorNode sen){
+		this.sen = sen;
+	}
+	public void setRelop(COMP relop){
+		this.relop = relop;
+	}
+
+	public String toString(){
+		String retString;
+		if(relop != null) retString = relop.toString() + "(" + sen.toString() +"," + num.toString() +")";
+		else if(cond == CONDS.not) retString = cond.name() + "(" + conds.get(0).toString() +")";
+		else retString = cond.name() + "(" + conds.get(0).toString() + "," + conds.get(1).toString() + ")";
+		return retString;
+	}
+
+	@Override
+	public boolean evaluate(Robot robot) {
+		boolean b;
+		if (relop == null){
+			switch (cond){
+				case or:
+					b = conds.get(0).evaluate(robot) || conds.get(1).evaluate(robot);
+					break;
+				case and:
+					b = conds.get(0).evaluate(robot) && conds.get(1).evaluate(robot);
+					break;
+				case not:
+					b = !conds.get(0).evaluate(robot);
+					break;
+				default:
+					throw new IllegalArgumentException();
+			}
+		}else {
+			int number = num.evaluate(robot);
+			int sensor = sen.evaluate(robot);
+			switch (relop) {
+				case eq:
+					b = sensor == number;
+					break;
+				case gt:
+					b = sensor > number;
+					break;
+				case lt:
+					b = sensor < number;
+					break;
+				default:
+					throw new IllegalArgumentException();
+			}
+		}
+ 		return b;
+	}
+}
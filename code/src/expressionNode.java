@@ -0,0 +1,45 @@
+import java.util.ArrayList;
+
+class expressionNode implements RobotSensorNode{
+	ArrayList<RobotSensorNode> nodes = new ArrayList<>();
+	OP operator;
+
+	public void setOp(OP op) {
+		this.operator = op;
+	}
+
+	public void addNode(RobotSensorNode node) {
+		nodes.add(node);
+	}
+
+	public String toString(){
+		if(nodes.size() > 1){
+			 return operator.name() +"("+nodes.get(0).toString() +","+nodes.get(1).toString() +")";
+		}
+		return nodes.get(0).toString();
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		int i;
+		if(operator != null){
+			switch (operator){
+				case add:
+					i = (nodes.get(0).evaluate(robot) + nodes.get(1).evaluate(robot));
+					break;
+				case sub:
+					i = (nodes.get(0).evaluate(robot) - nodes.get(1).evaluate(robot));
+					break;
+				case mul:
+					i = (nodes.get(0).evaluate(robot) * nodes.get(1).evaluate(robot));
+					break;
+				case div:
+					i = (nodes.get(0).evaluate(robot) / nodes.get(1).evaluate(robot));
+					break;
+				default:
+					throw new IllegalArgumentException();
+			}
+		}else return nodes.get(0).evaluate(robot);
+		return i;
+	}
+}
@@ -0,0 +1,58 @@
+import java.util.ArrayList;
+
+class ifNode implements RobotProgramNode{
+	RobotEvaluateNode condNode;
+	RobotProgramNode node;
+	RobotProgramNode elseNode;
+	ArrayList<ifNode> elif = new ArrayList<>();
+	/** For an elif arm, the robot's frame slot that is set once it matches */
+	int flag = -1;
+	public String toString(){
+		StringBuilder str = new StringBuilder("if(" + condNode.toString() + ")" + node.toString());
+		if(!elif.isEmpty()) {
+			for(ifNode n: elif){
+				str.append(" el").append(n.toString());
+			}
+		}
+		if(elseNode != null) str.append(" else ").append(elseNode.toString());
+		return str.toString();
+	}
+	public void addCond(RobotEvaluateNode cond){
+		this.condNode = cond;
+	}
+	public void addNode(RobotProgramNode node){
+		this.node = node;
+	}
+	public void addElif(ifNode elif){
+		this.elif.add(elif);
+	}
+	public void setElseNode(RobotProgramNode elseNode) {
+		this.elseNode = elseNode;
+	}
+	public void setFlag(int flag) {
+		this.flag = flag;
+	}
+
+	/**
+	 * As it always has, an elif arm that has matched once, on this run or an
+	 * earlier one, stops the arms after it being tried, and the else never
+	 * runs if there are elif arms. Whether an arm has matched is kept in the
+	 * robot's frame, not the tree, so robots can share the tree.
+	 */
+	@Override
+	public void execute(Robot robot) {
+		if(condNode.evaluate(robot)){
+			node.execute(robot);
+		}
+		else if(!elif.isEmpty()) {
+			for(ifNode n : elif){
+				if(n.condNode.evaluate(robot)){
+					robot.getVariables()[n.flag] = 1;
+					n.node.execute(robot);
+				}
+				if(robot.getVariables()[n.flag] != 0) break;
+			}
+		}
+		else if(elseNode != null) elseNode.execute(robot);
+	}
+}
@@ -0,0 +1,19 @@
+class loopNode implements RobotProgramNode{
+	RobotProgramNode node;
+
+	void addNode(RobotProgramNode node){
+		this.node = node;
+	}
+
+	public String toString(){
+		return "loop" + node.toString();
+	}
+
+	@Override
+	public void execute(Robot robot) {
+		while(true) {
+			robot.checkCancelled();
+			node.execute(robot);
+		}
+	}
+}
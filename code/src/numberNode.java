@@ -0,0 +1,13 @@
+class numberNode implements RobotSensorNode{
+	int number;
+	public String toString(){
+		return String.valueOf(number);
+	}
+	public void setNumber(int number) {
+		this.number = number;
+	}
+	@Override
+	public int evaluate(Robot robot) {
+		return number;
+	}
+}
@@ -0,0 +1,32 @@
+import java.util.ArrayList;
+
+class programNode implements RobotProgramNode{
+	ArrayList<RobotProgramNode> nodes = new ArrayList<>();
+	int variableCount;
+
+	void addNode(RobotProgramNode node){
+		nodes.add(node);
+	}
+
+	void setVariableCount(int variableCount){
+		this.variableCount = variableCount;
+	}
+
+	/**
+	 * Gives the robot a fresh, zeroed variable frame, so robots sharing this
+	 * tree each have their own variables.
+	 */
+	@Override
+	public void execute(Robot robot) {
+		robot.setVariables(new int[variableCount]);
+		nodes.forEach(n -> n.execute(robot));
+	}
+
+	public String toString(){
+		StringBuilder ret = new StringBuilder("(");
+		for(RobotProgramNode n : nodes){
+			ret.append(" + ").append(n.toString());
+		}
+		return ret + ")";
+	}
+}
@@ -0,0 +1,49 @@
+class sensorNode implements RobotSensorNode{
+	SENSOR sen;
+	RobotSensorNode iter;
+
+	public void setIter(RobotSensorNode iter) {
+		this.iter = iter;
+	}
+
+	public void setSen(SENSOR sen) {
+		this.sen = sen;
+	}
+	public String toString(){
+		if(iter != null){
+			return sen.toString()+"("+iter.toString()+")";
+		}
+		return sen.name();
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		int iterations = (iter != null) ? iter.evaluate(robot) : 0;
+		if(iterations > 13) iterations = 0;
+		int i = Integer.MAX_VALUE;
+		switch(sen){
+			case oppFB:
+				i = robot.getOpponentFB();
+				break;
+			case oppLR:
+				i = robot.getOpponentLR();
+				break;
+			case barrelFB:
+				i = robot.getBarrelFB(iterations);
+				break;
+			case barrelLR:
+				i = robot.getBarrelLR(iterations);
+				break;
+			case fuelLeft:
+				i = robot.getFuel();
+				break;
+			case wallDist:
+				i = robot.getDistanceToWall();
+				break;
+			case numBarrels:
+				i = robot.numBarrels();
+				break;
+		}
+		return i;
+	}
+}
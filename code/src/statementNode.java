@@ -0,0 +1,20 @@
+import java.util.ArrayList;
+
+class statementNode implements RobotProgramNode{
+	ArrayList<RobotProgramNode> nodes = new ArrayList<>();
+
+	void addNode(RobotProgramNode node){
+		nodes.add(node);
+	}
+	@Override
+	public void execute(Robot robot) {
+		nodes.forEach(n -> n.execute(robot));
+	}
+	public String toString(){
+		StringBuilder ret = new StringBuilder();
+		for(RobotProgramNode n : nodes){
+			ret.append(n.toString());
+		}
+		return ret.toString();
+	}
+}
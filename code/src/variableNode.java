@@ -0,0 +1,28 @@
+class variableNode implements RobotSensorNode{
+	String variableName;
+	int slot;
+
+	public void setVariableName(String variableName) {
+		this.variableName = variableName;
+	}
+
+	public void setSlot(int slot) {
+		this.slot = slot;
+	}
+
+	public int getSlot() {
+		return slot;
+	}
+
+	public String getName() {
+		return variableName;
+	}
+	public String toString(){
+		return this.getName();
+	}
+
+	@Override
+	public int evaluate(Robot robot) {
+		return robot.getVariables()[slot];
+	}
+}
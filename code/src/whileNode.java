@@ -0,0 +1,20 @@
+class whileNode implements RobotProgramNode{
+	RobotEvaluateNode condNode;
+	RobotProgramNode node;
+	public String toString(){
+		return "while(" + condNode.toString() + ")" + node.toString();
+	}
+	public void addCond(RobotEvaluateNode cond){
+		this.condNode = cond;
+	}
+	public void addNode(RobotProgramNode node){
+		this.node = node;
+	}
+	@Override
+	public void execute(Robot robot) {
+		while(condNode.evaluate(robot)) {
+			robot.checkCancelled();
+			node.execute(robot);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks BarrelIndex against the set the game used to keep its barrels in,
+ * a ConcurrentHashMap backed set of Point, with robots finding the nearest
+ * barrels by sorting that set by distance, stably.
+ */
+class BarrelIndexTest {
+
+	static final int RUNS = 20, OPS = 2000;
+
+	@Test
+	void matchesTheSetTheGameUsedToKeep() {
+		for (int size : new int[] { World.SIZE, 40 }) {
+			for (int run = 0; run < RUNS; run++) {
+				check(size, new Random(run));
+			}
+		}
+	}
+
+	private static void check(int size, Random random) {
+		BarrelIndex index = new BarrelIndex(size);
+		Set<Point> barrels = Collections.newSetFromMap(new ConcurrentHashMap<Point, Boolean>());
+		List<BarrelIndex> copies = new ArrayList<>();
+		List<long[]> copied = new ArrayList<>();
+		for (int op = 0; op < OPS; op++) {
+			int x = random.nextInt(size), y = random.nextInt(size);
+			int kind = random.nextInt(10);
+			if (kind < 6) {
+				assertEquals(barrels.add(new Point(x, y)), index.add(x, y));
+			} else if (kind < 9) {
+				// mostly barrels that are there, as robots take them
+				if (!barrels.isEmpty() && random.nextBoolean()) {
+					Point p = new ArrayList<>(barrels).get(random.nextInt(barrels.size()));
+					x = p.x;
+					y = p.y;
+				}
+				assertEquals(barrels.remove(new Point(x, y)), index.claim(x, y));
+			} else if (random.nextInt(50) == 0) {
+				barrels.clear();
+				index.clear();
+			}
+
+			// carry on with a copy now and then, the old one must not change
+			int copy = random.nextInt(40);
+			if (copy == 0) {
+				copies.add(index);
+				copied.add(index.snapshot());
+				index = index.copy();
+			} else if (copy == 1) {
+				index.flatten();
+			}
+
+			assertEquals(barrels.size(), index.size());
+			int qx = random.nextInt(size), qy = random.nextInt(size);
+			assertEquals(barrels.contains(new Point(qx, qy)), index.contains(qx, qy));
+			int k = 1 + random.nextInt(6);
+			assertEquals(nearest(barrels, qx, qy, k), index.nearest(qx, qy, k));
+		}
+		for (int i = 0; i < copies.size(); i++) {
+			assertArrayEquals(copied.get(i), copies.get(i).snapshot());
+		}
+	}
+
+	/** The k barrels nearest (x, y), as robots found them before BarrelIndex */
+	static List<Point> nearest(Set<Point> barrels, final int x, final int y, int k) {
+		List<Point> sorted = new ArrayList<>(barrels);
+		Collections.sort(sorted, new Comparator<Point>() {
+			@Override
+			public int compare(Point a, Point b) {
+				return Integer.compare(Math.abs(a.x - x) + Math.abs(a.y - y), Math.abs(b.x - x) + Math.abs(b.y - y));
+			}
+		});
+		return sorted.subList(0, Math.min(k, sorted.size()));
+	}
+}
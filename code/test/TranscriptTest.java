@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Plays the full programs in data on the fuel layouts in test/transcripts, as
+ * the printer does, and compares what comes out with the transcripts checked
+ * in beside them, program-layout.out, which the game printed before any of
+ * the speed work. Programs that never run out of fuel are cut off after LINES
+ * lines. Every program in data is also played as parsed and as optimised,
+ * which must print the same.
+ */
+class TranscriptTest {
+
+	static final int LINES = 600;
+	static final String[] PROGRAMS = { "s0_full", "s1_full", "s2_full", "s3_full" };
+	static final File TRANSCRIPTS = new File("test/transcripts");
+	static final File PROGRAMS_DIR = new File("../data");
+
+	@Test
+	void treeInterpreterMatches() throws IOException {
+		check(World.INTERPRETER_TREE);
+	}
+
+	@Test
+	void bytecodeMatches() throws IOException {
+		check(World.INTERPRETER_VM);
+	}
+
+	@Test
+	void specialisingInterpreterMatches() throws IOException {
+		check(World.INTERPRETER_SPECIALISING);
+	}
+
+	@Test
+	void jitMatches() throws IOException {
+		// the JIT falls back to the VM quietly, which would check the VM twice
+		for (String program : PROGRAMS) {
+			String source = new String(Files.readAllBytes(new File(PROGRAMS_DIR, program + ".prog").toPath()),
+					StandardCharsets.UTF_8);
+			assertTrue(World.forInterpreter(Parser.parse(source), World.INTERPRETER_JIT) instanceof JitProgram, program);
+		}
+		check(World.INTERPRETER_JIT);
+	}
+
+	@Test
+	void optimisedTreeMatchesTheParsedTree() throws IOException {
+		for (File program : files(PROGRAMS_DIR, ".prog")) {
+			for (File layout : files(TRANSCRIPTS, ".txt")) {
+				String name = program.getName() + "-" + layout.getName();
+				assertEquals(transcript(program, layout, -1), transcript(program, layout, World.INTERPRETER_TREE), name);
+			}
+		}
+	}
+
+	private static File[] files(File dir, final String suffix) {
+		File[] files = dir.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(suffix);
+			}
+		});
+		Arrays.sort(files);
+		return files;
+	}
+
+	private static void check(int interpreter) throws IOException {
+		File[] layouts = files(TRANSCRIPTS, ".txt");
+		for (String program : PROGRAMS) {
+			for (File layout : layouts) {
+				String name = program + "-" + layout.getName().replace(".txt", "");
+				String expected = new String(Files.readAllBytes(new File(TRANSCRIPTS, name + ".out").toPath()),
+						StandardCharsets.UTF_8);
+				assertEquals(expected, transcript(new File(PROGRAMS_DIR, program + ".prog"), layout, interpreter), name);
+			}
+		}
+	}
+
+	/** Thrown through the robot once a transcript is long enough */
+	private static class Full extends Error {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * What the printer prints for a program on a layout, up to LINES lines,
+	 * with the interpreter -1 for the tree as parsed, without the Optimiser.
+	 */
+	static String transcript(File program, File layout, int interpreter) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream out = new PrintStream(new OutputStream() {
+			private int lines = 0;
+
+			@Override
+			public void write(int b) {
+				if (lines == LINES) {
+					throw new Full();
+				}
+				bytes.write(b);
+				if (b == '\n') {
+					lines++;
+				}
+			}
+		}, true, "UTF-8");
+
+		World.RoboGamePrinter rgp = new World.RoboGamePrinter();
+		rgp.setTrace(new StateTrace(out));
+		rgp.setDebugSink(new DebugLog.ConsoleSink(out));
+		try {
+			String source = new String(Files.readAllBytes(program.toPath()), StandardCharsets.UTF_8);
+			RobotProgramNode parsed = Parser.parse(source, out);
+			rgp.robots[1].setProgram((interpreter == -1) ? parsed : World.forInterpreter(parsed, interpreter));
+			List<String> lines = Files.readAllLines(layout.toPath(), StandardCharsets.UTF_8);
+			for (String line : lines) {
+				String[] coords = line.trim().split("\\s+");
+				rgp.addBarrel(Integer.parseInt(coords[0]), Integer.parseInt(coords[1]));
+			}
+			rgp.robots[1].run();
+		} catch (Full e) {
+			// long enough
+		}
+		out.flush();
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
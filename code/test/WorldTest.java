@@ -0,0 +1,109 @@
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+class WorldTest {
+
+	/** Robot.DIRECTION ordinals */
+	static final int WEST = 1, EAST = 3;
+
+	static final File RED = new File("../data/s2_full.prog"), BLUE = new File("../data/s3_full.prog");
+	static final int SEEDS = 8;
+
+	/**
+	 * A world whose robots stand where the state says, ROBOT_INTS each from
+	 * robot 1, as a snapshot holds them.
+	 */
+	static World world(int robots, int... state) {
+		World world = new World(false, 1, robots, 12);
+		WorldSnapshot snapshot = world.snapshot();
+		int[] all = new int[(robots + 1) * WorldSnapshot.ROBOT_INTS];
+		System.arraycopy(state, 0, all, WorldSnapshot.ROBOT_INTS, state.length);
+		world.restore(new WorldSnapshot(12, 1, 0, World.RESULT_NONE, all, snapshot.barrels, snapshot.rand));
+		return world;
+	}
+
+	@Test
+	void refusedMoveBlocksTheRobotMovingOntoItsCell() throws Exception {
+		// 1 follows 2 east, 2 and 3 meet head on: 2 is refused, so 1 is too
+		World world = world(3,
+				0, 5, EAST, 100, 0,
+				1, 5, EAST, 100, 0,
+				3, 5, WEST, 100, 0);
+		for (int i = 1; i <= 3; i++) {
+			world.loadRobotProgram(i, "move;");
+		}
+		world.start().join();
+
+		assertEquals(0, world.getRobot(1).getX());
+		assertEquals(1, world.getRobot(2).getX());
+		assertEquals(2, world.getRobot(3).getX());
+		for (int i = 1; i <= 3; i++) {
+			assertEquals(5, world.getRobot(i).getY());
+		}
+	}
+
+	@Test
+	void joinReportsACrashedProgram() {
+		final World world = world(2,
+				0, 5, EAST, 100, 0,
+				5, 5, WEST, 100, 0);
+		world.loadRobotProgram(1, "move(div(1, 0));");
+		world.loadRobotProgram(2, "move;");
+		ExecutionException e = assertThrows(ExecutionException.class, new Executable() {
+			@Override
+			public void execute() throws Throwable {
+				world.start().join();
+			}
+		});
+		assertTrue(e.getCause() instanceof ArithmeticException);
+	}
+
+	@Test
+	void sameSeedPlaysTheSameMatch() {
+		RobotProgramNode red = Parser.parseFile(RED), blue = Parser.parseFile(BLUE);
+		for (int interpreter : new int[] { World.INTERPRETER_TREE, World.INTERPRETER_VM }) {
+			for (long seed = 0; seed < SEEDS; seed++) {
+				WorldSnapshot first = Tournament.play(red, blue, seed, interpreter, Tournament.TICK_LIMIT, true).snapshot();
+				WorldSnapshot second = Tournament.play(red, blue, seed, interpreter, Tournament.TICK_LIMIT, true).snapshot();
+				assertSameState(first, second);
+			}
+		}
+	}
+
+	@Test
+	void restoredWorldPlaysTheSameMatchAgain() throws Exception {
+		for (long seed = 0; seed < SEEDS; seed++) {
+			World world = new World(false, seed);
+			world.setTickLimit(Tournament.TICK_LIMIT);
+			world.setTrace(new StateTrace(StateTrace.OFF));
+			world.setDebugSink(DebugLog.DROP);
+			world.getRobot(1).setProgram(World.forInterpreter(Parser.parseFile(RED), World.INTERPRETER_TREE));
+			world.getRobot(2).setProgram(World.forInterpreter(Parser.parseFile(BLUE), World.INTERPRETER_TREE));
+			WorldSnapshot start = world.snapshot();
+			long[] barrels = start.barrels.snapshot();
+			world.start().join();
+			WorldSnapshot end = world.snapshot();
+
+			world.restore(start);
+			world.start().join();
+			assertSameState(end, world.snapshot());
+			// neither match changed the barrels the snapshot shares
+			assertArrayEquals(barrels, start.barrels.snapshot());
+		}
+	}
+
+	static void assertSameState(WorldSnapshot expected, WorldSnapshot actual) {
+		assertEquals(expected.getTick(), actual.getTick());
+		assertEquals(expected.getResult(), actual.getResult());
+		assertArrayEquals(expected.robots, actual.robots);
+		assertArrayEquals(expected.barrels.snapshot(), actual.barrels.snapshot());
+	}
+}